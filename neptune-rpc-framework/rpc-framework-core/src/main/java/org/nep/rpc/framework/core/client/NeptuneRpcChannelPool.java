@@ -0,0 +1,226 @@
+package org.nep.rpc.framework.core.client;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.AttributeKey;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h3>客户端和同一个服务端之间建立的多条连接</h3>
+ * <h3>1. 每条连接都会记录正在等待响应的请求数量</h3>
+ * <h3>2. 发送请求时选择等待响应的请求最少的连接, 避免大请求阻塞其他请求</h3>
+ * <h3>3. 连接采用异步方式建立, 连接断开后按照指数退避的间隔自动重连, 直到连接池被关闭</h3>
+ * <h3>4. 每条连接各自记录重连次数: 连接保持稳定一段时间之后才清零, 建立之后马上又断开的连接依然按照指数退避重连</h3>
+ */
+@Slf4j
+@Getter
+@ToString(of = {"address", "port", "channels"})
+public class NeptuneRpcChannelPool {
+
+    /**
+     * <h3>连接上正在等待响应的请求数量</h3>
+     */
+    private static final AttributeKey<AtomicInteger> PENDING = AttributeKey.valueOf("neptune.rpc.pending");
+
+    /**
+     * <h3>第一次重连的间隔: 毫秒</h3>
+     */
+    private static final long INITIAL_BACKOFF = 100;
+
+    /**
+     * <h3>重连间隔的上限: 毫秒</h3>
+     */
+    private static final long MAX_BACKOFF = 30000;
+
+    /**
+     * <h3>连接保持活跃超过这个时间才认为已经稳定, 断开后从第一次重连的间隔重新开始: 毫秒</h3>
+     */
+    private static final long STABLE_PERIOD = 10000;
+
+    /**
+     * <h3>客户端</h3>
+     */
+    private final Bootstrap client;
+
+    /**
+     * <h3>服务端的 IP 地址</h3>
+     */
+    private final String address;
+
+    /**
+     * <h3>服务端的端口号</h3>
+     */
+    private final int port;
+
+    /**
+     * <h3>注: 连接数量很少并且几乎不会变化, 所以采用写时复制的集合</h3>
+     */
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+    /**
+     * <h3>引用连接池的服务数量</h3>
+     */
+    private final AtomicInteger references = new AtomicInteger(0);
+
+    /**
+     * <h3>第一条连接建立成功时完成</h3>
+     */
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    /**
+     * <h3>连接池是否已经关闭: 关闭后不再重连</h3>
+     */
+    private volatile boolean closed;
+
+    public NeptuneRpcChannelPool(Bootstrap client, String address, int port) {
+        this.client = client;
+        this.address = address;
+        this.port = port;
+    }
+
+    /**
+     * <h3>异步建立多条连接: 不会阻塞调用方, 返回第一条连接建立成功时完成的 Future</h3>
+     */
+    public CompletableFuture<Void> open(int size){
+        for (int index = 0; index < size; index++) {
+            connect(0);
+        }
+        return ready;
+    }
+
+    /**
+     * <h3>异步建立连接: 如果失败, 那么就等待退避间隔后重连</h3>
+     */
+    private void connect(int attempt){
+        if (closed){
+            return;
+        }
+        client.connect(new InetSocketAddress(address, port)).addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()){
+                log.warn("[neptune rpc client channel pool]: channel connected fail - ip: {}, port: {}, attempt: {}, cause: {}",
+                        address, port, attempt, future.cause().getMessage());
+                reconnect(attempt + 1);
+                return;
+            }
+            add(future.channel(), attempt);
+        });
+    }
+
+    /**
+     * <h3>等待退避间隔后重连: 间隔按照指数增长并且加入随机抖动, 避免所有客户端同时重连</h3>
+     */
+    private void reconnect(int attempt){
+        if (closed){
+            return;
+        }
+        long backoff = Math.min(MAX_BACKOFF, INITIAL_BACKOFF << Math.min(attempt, 16));
+        long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        client.config().group().schedule(() -> connect(attempt), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <h3>添加新建立的连接: 连接断开后自动移除并且重连</h3>
+     * @param attempt 建立这条连接之前已经重连的次数
+     */
+    private void add(Channel channel, int attempt){
+        // 注: 连接池已经关闭之后才建立成功的连接直接关闭
+        if (closed){
+            channel.close();
+            return;
+        }
+        channel.attr(PENDING).setIfAbsent(new AtomicInteger(0));
+        channels.add(channel);
+        long connected = System.nanoTime();
+        channel.closeFuture().addListener(future -> {
+            channels.remove(channel);
+            if (!closed){
+                // 注: 连接稳定之后才清零重连次数, 接受连接之后马上断开的服务端不会被频繁重连
+                boolean stable = System.nanoTime() - connected >= TimeUnit.MILLISECONDS.toNanos(STABLE_PERIOD);
+                int next = stable ? 0 : attempt + 1;
+                log.warn("[neptune rpc client channel pool]: channel inactive, start reconnect - ip: {}, port: {}, attempt: {}", address, port, next);
+                reconnect(next);
+            }
+        });
+        ready.complete(null);
+        log.info("[neptune rpc client channel pool]: channel connected - ip: {}, port: {}, channels: {}", address, port, channels.size());
+    }
+
+    /**
+     * <h3>选择等待响应的请求最少的可用连接</h3>
+     * <h3>注: 从随机位置开始遍历, 避免空闲时所有请求都集中在第一条连接</h3>
+     */
+    public Channel select(){
+        Object[] snapshot = channels.toArray();
+        int size = snapshot.length;
+        if (size == 0){
+            return null;
+        }
+        int start = size == 1 ? 0 : ThreadLocalRandom.current().nextInt(size);
+        Channel selected = null;
+        int least = Integer.MAX_VALUE;
+        for (int offset = 0; offset < size; offset++) {
+            Channel channel = (Channel) snapshot[(start + offset) % size];
+            if (!channel.isActive()){
+                continue;
+            }
+            int pending = pending(channel).get();
+            if (pending < least){
+                least = pending;
+                selected = channel;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * <h3>增加引用计数</h3>
+     */
+    public int retain(){
+        return references.incrementAndGet();
+    }
+
+    /**
+     * <h3>减少引用计数, 返回剩余的引用数量</h3>
+     */
+    public int release(){
+        return references.decrementAndGet();
+    }
+
+    /**
+     * <h3>是否没有任何连接</h3>
+     */
+    public boolean isEmpty(){
+        return channels.isEmpty();
+    }
+
+    /**
+     * <h3>关闭所有连接</h3>
+     */
+    public void close(){
+        closed = true;
+        for (Channel channel : channels) {
+            channel.close();
+        }
+        channels.clear();
+        log.info("[neptune rpc client channel pool]: channel pool closed - ip: {}, port: {}", address, port);
+    }
+
+    /**
+     * <h3>获取连接上正在等待响应的请求数量</h3>
+     */
+    public static AtomicInteger pending(Channel channel){
+        return channel.attr(PENDING).get();
+    }
+
+}
@@ -2,13 +2,17 @@ package org.nep.rpc.framework.core.client;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.nep.rpc.framework.core.common.cache.NeptuneRpcClientCache;
 import org.nep.rpc.framework.core.common.config.NeptuneRpcClientConfig;
+import org.nep.rpc.framework.core.common.constant.Protocol;
 import org.nep.rpc.framework.core.common.resource.PropertyBootStrap;
+import org.nep.rpc.framework.core.compress.NeptuneCompressorType;
 import org.nep.rpc.framework.core.filter.chain.NeptuneClientFilter;
 import org.nep.rpc.framework.core.filter.client.NeptuneClientDirectInvokerFilter;
 import org.nep.rpc.framework.core.filter.client.NeptuneClientGroupFilter;
@@ -17,8 +21,6 @@ import org.nep.rpc.framework.core.handler.NeptuneRpcClientHandler;
 import org.nep.rpc.framework.core.handler.NeptuneRpcDecoder;
 import org.nep.rpc.framework.core.handler.NeptuneRpcEncoder;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcFrameDecoder;
-import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
-import org.nep.rpc.framework.core.protocol.NeptuneRpcProtocol;
 import org.nep.rpc.framework.core.proxy.ProxyFactory;
 import org.nep.rpc.framework.core.proxy.jdk.JdkDynamicProxyFactory;
 import org.nep.rpc.framework.core.serialize.INeptuneSerializer;
@@ -29,8 +31,13 @@ import org.nep.rpc.framework.registry.url.NeptuneDefaultURL;
 import org.nep.rpc.framework.registry.url.NeptuneURL;
 
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 public class NeptuneRpcClient {
@@ -42,6 +49,17 @@ public class NeptuneRpcClient {
      */
     private static final int WORKER_THREAD_COUNT = 4;
 
+    /**
+     * <h3>建立单条连接的超时时间: 毫秒</h3>
+     */
+    private static final int CONNECT_TIME_OUT = 3000;
+
+    /**
+     * <h3>启动时等待所有服务端连接建立的最长时间: 毫秒</h3>
+     * <h3>注: 这是所有服务端共用的总时间, 不是每个服务端单独等待的时间</h3>
+     */
+    private static final long CONNECT_WAIT_TIME = 5000;
+
     /**
      * <h3>处理读写事件</h3>
      */
@@ -84,38 +102,54 @@ public class NeptuneRpcClient {
      * <h3>启动客户端</h3>
      */
     public void startNeptune(){
-        // 1. 如果注册中心或者客户端已经启动过了, 那么禁止重复启动
-        if (Objects.isNull(registry) || Objects.isNull(client)){
+        // 1. 如果客户端已经启动过了, 那么禁止重复启动
+        if (Objects.nonNull(client)){
             log.info("[neptune rpc client]: client already has start");
             return;
         }
         log.info("[neptune rpc client]: client is starting");
-        // 2. 初始化注册中心
-        registry = new NeptuneZookeeperRegistry(config.getRegisterConfig());
+        // 2. 初始化注册中心: 订阅服务时可能已经初始化
+        initRegistry();
         // 3. 初始化序列化算法
         serializer = config.getSerializer();
         // 4. 初始化负载均衡策略
         loadBalance = config.getLoadBalanceStrategy();
+        // 注: 初始化等待响应的请求窗口容量
+        if (Objects.nonNull(config.getWindowSize())){
+            NeptuneRpcClientCache.Windows.init(config.getWindowSize());
+        }
+        // 注: 初始化默认的调用超时时间
+        if (Objects.nonNull(config.getCallTimeout())){
+            NeptuneRpcClientCache.Windows.initTimeout(config.getCallTimeout());
+        }
+        // 注: 初始化调用请求的压缩算法、分片大小以及数据包最大长度
+        NeptuneCompressorType compressor = Objects.isNull(config.getCompressor()) ? NeptuneCompressorType.COMPRESSOR_NONE : config.getCompressor();
+        int compressThreshold = Objects.isNull(config.getCompressThreshold()) ? Protocol.COMPRESS_THRESHOLD : config.getCompressThreshold();
+        int maxFrameLength = Objects.isNull(config.getMaxFrameLength()) ? Protocol.MAX_FRAME_LENGTH : config.getMaxFrameLength();
+        int chunkSize = Objects.isNull(config.getChunkSize()) ? Protocol.CHUNK_SIZE : config.getChunkSize();
+        int maxMessageLength = Objects.isNull(config.getMaxMessageLength()) ? Protocol.MAX_MESSAGE_LENGTH : config.getMaxMessageLength();
         // 5. 初始化循环实践组
         client = new Bootstrap();
         worker = new NioEventLoopGroup(WORKER_THREAD_COUNT);
         // 5. 初始化客户端的配置
         client.group(worker)
                 .channel(NioSocketChannel.class)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIME_OUT)
                 .handler(new ChannelInitializer<NioSocketChannel>() {
                     @Override
                     protected void initChannel(NioSocketChannel channel) throws Exception {
-                        channel.pipeline().addLast(new NeptuneRpcFrameDecoder());
-                        channel.pipeline().addLast(new NeptuneRpcEncoder());
-                        channel.pipeline().addLast(new NeptuneRpcDecoder());
+                        // 注: 合并同一轮事件循环中的多次 flush, 减少系统调用
+                        channel.pipeline().addLast(new FlushConsolidationHandler(
+                                FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+                        channel.pipeline().addLast(new NeptuneRpcFrameDecoder(maxFrameLength));
+                        channel.pipeline().addLast(new NeptuneRpcEncoder(compressor, compressThreshold, chunkSize));
+                        channel.pipeline().addLast(new NeptuneRpcDecoder(maxMessageLength));
                         channel.pipeline().addLast(new NeptuneRpcClientHandler());
                     }
                 });
         // 6. 初始化客户端和所有服务提供者的连接
         connectService();
-        // 7. 开启异步线程发送数据
-        asyncSend();
-        // 8. 初始化动态代理类
+        // 7. 初始化动态代理类
     }
 
     public void closeNeptune(){
@@ -140,12 +174,22 @@ public class NeptuneRpcClient {
     public void subscribeService(Class<?> service){
         // 1. 根据订阅的服务接口组成生成 URL 对象
         NeptuneURL url = getUrl(service);
-        // 2. 服务订阅
+        // 2. 服务订阅: 订阅服务可能发生在客户端启动之前
+        initRegistry();
         registry.subscribe(url);
         // 3. 记录订阅的路径
         log.info("[neptune rpc client]: client subscribe service url - {}", url.toString(CONSUMER));
     }
 
+    /**
+     * <h3>初始化注册中心</h3>
+     */
+    private synchronized void initRegistry(){
+        if (Objects.isNull(registry)){
+            registry = new NeptuneZookeeperRegistry(config.getRegisterConfig());
+        }
+    }
+
     /**
      * <h3>组装服务订阅的 URL 对象</h3>
      */
@@ -163,64 +207,32 @@ public class NeptuneRpcClient {
      * <h3>客户端和所有提供服务的服务端建立连接</h3>
      * <h3>1. 从哈希表中获取所有订阅的服务</h3>
      * <h3>2. 查询每个服务有哪些服务端提供并且和所有服务端都建立连接</h3>
+     * <h3>3. 所有连接都是并行异步建立的, 启动线程最多等待固定的时间</h3>
      */
     private void connectService(){
         // 1. 初始化连接器
-        NeptuneRpcConnectionHandler.init(client, loadBalance);
+        NeptuneRpcConnectionHandler.init(client, config);
         // 2. 从哈希表中获取所有已经订阅的服务接口
         List<String> services = NeptuneRpcClientCache.Service.getServices();
         // 3. 遍历所有订阅的服务接口然后和所有提供服务的服务端建立连接
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
         for (String service : services) {
-            // 3.1. 调用注册中心查询提供服务的所有服务端然后分别建立连接
+            // 3.1. 调用注册中心查询提供服务的所有服务端然后分别建立连接: 结点数据中携带服务端所属的分组
             registry.lookup(service)
-                    .forEach(path -> NeptuneRpcConnectionHandler.connect(service, path));
+                    .forEach(path -> futures.add(NeptuneRpcConnectionHandler.connect(service, path, registry.lookupData(service, path))));
             // 3.2 监听已经订阅的服务下的所有子结点
             registry.afterSubscribe(service);
         }
-    }
-
-
-    /**
-     * <h3>异步线程: 负责客户端和所有服务提供者之间的消息通信</h3>
-     */
-    private void asyncSend(){
-        // 1. 创建线程对象
-        Thread thread = new Thread(new AsyncSendTask(), "async-send-task-thread");
-        // 2. 设置为守护线程: 只要客户端主线程结束, 那么异步发送的线程一起结束
-        thread.setDaemon(true);
-        // 3. 启动线程
-        thread.start();
-        log.debug("[Neptune RPC Client]: 客户端异步线程启动");
-    }
-
-    private final class AsyncSendTask implements Runnable{
-        @Override
-        public void run() {
-            while (true){
-                // 1. 从消息队列中获取调用请求
-                NeptuneRpcInvocation invocation = NeptuneRpcClientCache.MessageQueue.receive();
-                // 2. 校验调用请求是否为空
-                if (Objects.isNull(invocation)){
-                    log.error("[neptune rpc client async send task]: receive invocation is null");
-                    continue;
-                }
-                log.info("[neptune rpc client async send task]: receive invocation {}", invocation);
-                // 2. 调用序列化算法将调用请求转换为二进制的数据
-                NeptuneRpcProtocol message =
-                        new NeptuneRpcProtocol(serializer.serialize(invocation));
-                // 3. 获取一个提供服务的服务提供者然后发送消息
-                NeptuneRpcInvoker invoker =
-                        NeptuneRpcConnectionHandler.select(invocation);
-                // 4. 检查是否有可用的服务提供者
-                if (Objects.isNull(invoker)){
-                    log.error("[neptune rpc client async send task]: select invoker is null");
-                    continue;
-                }
-                log.info("[neptune rpc client async send task]: send invocation - ip: {}, port: {}, serviceName: {}, methodName: {}",
-                        invoker.getAddress(), invoker.getPort(), invocation.getServiceName(), invocation.getMethodName());
-                // 4. 发送消息给对应的服务端
-                invoker.getFuture().channel().writeAndFlush(message);
-            }
+        // 4. 等待所有服务端的连接建立: 超时后没有建立成功的连接会在后台继续重连
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                    .get(CONNECT_WAIT_TIME, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("[neptune rpc client]: client connect providers timeout, continue connecting in background");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("[neptune rpc client]: client connect providers occurred error", e);
         }
     }
 
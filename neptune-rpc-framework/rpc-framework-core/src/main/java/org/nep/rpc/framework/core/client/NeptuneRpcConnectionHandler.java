@@ -1,22 +1,28 @@
 package org.nep.rpc.framework.core.client;
 
-import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.StrUtil;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import lombok.extern.slf4j.Slf4j;
 import org.nep.rpc.framework.core.common.cache.NeptuneRpcClientCache;
+import org.nep.rpc.framework.core.common.config.NeptuneRpcClientConfig;
 import org.nep.rpc.framework.core.common.constant.Separator;
 import org.nep.rpc.framework.core.filter.chain.NeptuneClientFilter;
 import org.nep.rpc.framework.core.filter.client.NeptuneClientDirectInvokerFilter;
 import org.nep.rpc.framework.core.filter.client.NeptuneClientGroupFilter;
 import org.nep.rpc.framework.core.filter.client.NeptuneClientLogFilter;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcProtocol;
 import org.nep.rpc.framework.core.router.INeptuneRpcLoadBalance;
+import org.nep.rpc.framework.core.serialize.INeptuneStreamSerializer;
+import org.nep.rpc.framework.core.serialize.NeptuneSerializerType;
 
-import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <h3>负责处理连接相关</h3>
@@ -31,88 +37,206 @@ public class NeptuneRpcConnectionHandler {
     private static final int PATH_LENGTH = 3;
 
     /**
-     * <h3>客户端过滤链</h3>
+     * <h3>结点数据的格式是 应用名;服务名;IP 地址;端口号;权重;时间戳;分组, 旧版本的服务端不会写入分组</h3>
+     */
+    private static final int GROUP_INDEX = 6;
+
+    /**
+     * <h3>默认和每个服务端建立的连接数量</h3>
+     */
+    private static final int DEFAULT_CONNECTION_SIZE = 1;
+
+    /**
+     * <h3>客户端过滤链: 日志 => 分组 => 直连</h3>
      */
     private static final NeptuneClientFilter filter = new NeptuneClientLogFilter()
-                                                              .setNextFilter(new NeptuneClientGroupFilter())
-                                                              .setNextFilter(new NeptuneClientDirectInvokerFilter());
+                                                              .setNextFilter(new NeptuneClientGroupFilter()
+                                                              .setNextFilter(new NeptuneClientDirectInvokerFilter()));
 
     private static Bootstrap client;
 
     private static INeptuneRpcLoadBalance loadBalance;
 
-    public static void init(Bootstrap client, INeptuneRpcLoadBalance loadBalance){
+    private static INeptuneStreamSerializer serializer;
+
+    /**
+     * <h3>序列化算法编号: 写入协议头, 服务端根据编号反序列化</h3>
+     */
+    private static byte serializerCode;
+
+    private static int connectionSize = DEFAULT_CONNECTION_SIZE;
+
+    /**
+     * <h3>是否发送不携带参数类型的精简调用请求: 需要服务端支持方法编号</h3>
+     */
+    private static boolean compact = false;
+
+    public static void init(Bootstrap client, NeptuneRpcClientConfig config){
         NeptuneRpcConnectionHandler.client = client;
-        NeptuneRpcConnectionHandler.loadBalance = loadBalance;
+        NeptuneRpcConnectionHandler.loadBalance = config.getLoadBalanceStrategy();
+        NeptuneRpcConnectionHandler.serializer = INeptuneStreamSerializer.of(config.getSerializer());
+        NeptuneRpcConnectionHandler.serializerCode = (byte) NeptuneSerializerType.getSerializerCode(config.getSerializer());
+        if (Objects.nonNull(config.getConnectionSize()) && config.getConnectionSize() > 0){
+            NeptuneRpcConnectionHandler.connectionSize = config.getConnectionSize();
+        }
+        NeptuneRpcConnectionHandler.compact = Boolean.TRUE.equals(config.getCompactInvocation());
     }
 
     /**
      * <h3>负责建立连接</h3>
+     * <h3>注: 同一个服务端提供的多个服务共用相同的连接</h3>
+     * <h3>注: 连接是异步建立的, 返回第一条连接建立成功时完成的 Future</h3>
      */
-    public static void connect(String serviceName, String path){
+    public static CompletableFuture<Void> connect(String serviceName, String path){
+        return connect(serviceName, path, null);
+    }
+
+    /**
+     * <h3>负责建立连接: 从结点数据中读取服务端所属的分组</h3>
+     */
+    public static CompletableFuture<Void> connect(String serviceName, String path, String data){
         // 1. 检查客户端是否已经启动
         if (client == null)
             throw new RuntimeException("[neptune rpc client connection handler]: connection handler find client still don't start");
         // 2. 服务名和结点路径是否为空
         if (StrUtil.isEmpty(serviceName) || StrUtil.isEmpty(path)){
             log.error("[neptune rpc client connection handler]: service name or node path is null");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
-        // 3. 检验连接是否已经存在
-        if (NeptuneRpcClientCache.Connection.isConnect(serviceName, path)){
-            log.warn("[neptune rpc client connection handler]: connection handler occurred duplicate connection");
-            return;
-        }
-        // 5. 获取启动必要的端口号和 IP 地址
-        String[] partitions = path.split(":");
-        // 6. 检查分割后是否合法
+        // 3. 获取启动必要的端口号和 IP 地址
+        String[] partitions = path.split(Separator.COLON);
+        // 4. 检查分割后是否合法
         if (partitions.length != PATH_LENGTH){
             log.error("[neptune rpc client connection handler] connection handler path pattern is error");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
         int port = Integer.parseInt(partitions[PORT_INDEX]);
         String address = partitions[IP_INDEX];
-        // 6. 准备建立连接
-        try {
-            ChannelFuture future = client.connect(new InetSocketAddress(address, port)).sync();
-            if (!future.isSuccess()){
-                log.warn("[neptune rpc client connection handler]: connection handler connected fail ip: {}, port: {}", address, port);
-                return;
-            }
-            NeptuneRpcInvoker invoker = new NeptuneRpcInvoker();
-            invoker.setPort(port);
-            invoker.setAddress(address);
-            invoker.setFuture(future);
-            // 7. 记录当前建立的连接
-            NeptuneRpcClientCache.Connection.connect(serviceName, invoker);
-            log.info("[neptune rpc client connection handler]: connection handler connected successfully ip: {}, port: {}", address, port);
-        } catch (InterruptedException e) {
-            log.error("[neptune rpc client connection handler]: connection handler connected error", e);
+        String endpoint = address + Separator.COLON + port;
+        // 5. 检验连接是否已经存在
+        if (NeptuneRpcClientCache.Connection.isConnect(serviceName, endpoint)){
+            log.warn("[neptune rpc client connection handler]: connection handler occurred duplicate connection");
+            return CompletableFuture.completedFuture(null);
+        }
+        // 6. 获取和服务端之间的连接: 如果其他服务已经和服务端建立过连接, 那么就直接复用
+        NeptuneRpcChannelPool channels = NeptuneRpcClientCache.Endpoint.acquire(endpoint, () -> {
+            NeptuneRpcChannelPool pool = new NeptuneRpcChannelPool(client, address, port);
+            pool.open(connectionSize);
+            return pool;
+        });
+        NeptuneRpcInvoker invoker = new NeptuneRpcInvoker();
+        invoker.setPort(port);
+        invoker.setAddress(address);
+        invoker.setServiceName(serviceName);
+        invoker.setGroup(groupOf(data));
+        invoker.setChannels(channels);
+        // 7. 记录当前服务对应的服务端: 如果并发建立了相同的连接, 那么就释放引用
+        if (!NeptuneRpcClientCache.Connection.connect(serviceName, endpoint, invoker)){
+            NeptuneRpcClientCache.Endpoint.release(endpoint);
+            return CompletableFuture.completedFuture(null);
         }
+        log.info("[neptune rpc client connection handler]: connection handler register provider ip: {}, port: {}, service: {}",
+                address, port, serviceName);
+        return channels.getReady();
+    }
+
+    /**
+     * <h3>从结点数据中读取分组: 如果没有分组, 那么返回 null, 服务端属于默认分组</h3>
+     */
+    private static String groupOf(String data){
+        if (StrUtil.isEmpty(data))
+            return null;
+        String[] partitions = data.split(Separator.SEMICOLON);
+        return partitions.length > GROUP_INDEX && StrUtil.isNotEmpty(partitions[GROUP_INDEX]) ? partitions[GROUP_INDEX] : null;
     }
 
     /**
      * <h3>负责断开连接</h3>
+     * <h3>注: 只有服务端提供的所有服务都下线时才会关闭连接</h3>
      */
     public static void disconnect(String serviceName, String path){
         if (serviceName == null || path == null){
             log.debug("[Neptune RPC Client]: 服务名和结点的路径为空");
             return;
         }
+        String[] partitions = path.split(Separator.COLON);
+        if (partitions.length != PATH_LENGTH){
+            log.error("[neptune rpc client connection handler] connection handler path pattern is error");
+            return;
+        }
+        String endpoint = partitions[IP_INDEX] + Separator.COLON + partitions[PORT_INDEX];
         NeptuneRpcInvoker wrapper =
-                NeptuneRpcClientCache.Connection.disconnect(serviceName, path);
+                NeptuneRpcClientCache.Connection.disconnect(serviceName, endpoint);
         if (wrapper == null){
             log.error("[Neptune RPC Client]: 需要关闭的连接不存在");
             return;
         }
-        try {
-            ChannelFuture future = wrapper.getFuture();
-            future.channel().closeFuture().sync();
-            log.debug("[Neptune RPC Client]: 服务连接:[端口号: {}, IP地址: {}] 已经关闭", wrapper.getPort(), wrapper.getAddress());
-            future.channel().close();
-        } catch (InterruptedException e) {
-            log.error("[Neptune RPC Client]: 客户端关闭和服务端连接时出现异常", e);
+        NeptuneRpcClientCache.Endpoint.release(endpoint);
+        log.debug("[Neptune RPC Client]: 服务连接:[端口号: {}, IP地址: {}] 已经下线", wrapper.getPort(), wrapper.getAddress());
+    }
+
+    /**
+     * <h3>发送请求: 由调用方线程完成序列化, 然后直接写入选中连接的事件循环</h3>
+     * <h3>注: 连接中的 FlushConsolidationHandler 会合并同一轮事件循环中的 flush</h3>
+     */
+    public static void send(NeptuneRpcInvocation invocation, NeptuneRpcFuture response){
+        // 1. 检查客户端是否已经启动
+        if (client == null || serializer == null){
+            log.error("[neptune rpc client connection handler]: connection handler find client still don't start");
+            NeptuneRpcClientCache.Windows.fail(invocation.getRequestId(),
+                    new RuntimeException("[neptune rpc client connection handler]: connection handler find client still don't start"));
+            return;
+        }
+        // 2. 获取一个提供服务的服务提供者
+        NeptuneRpcInvoker invoker = select(invocation);
+        // 3. 检查是否有可用的服务提供者: 如果没有, 那么直接唤醒调用方, 不需要等到超时
+        if (Objects.isNull(invoker)){
+            log.error("[neptune rpc client connection handler]: select invoker is null");
+            NeptuneRpcClientCache.Windows.fail(invocation.getRequestId(),
+                    new RuntimeException("[neptune rpc client connection handler]: select invoker is null"));
+            return;
         }
+        // 4. 选择等待响应的请求最少的连接
+        Channel channel = invoker.getChannels().select();
+        if (Objects.isNull(channel)){
+            log.error("[neptune rpc client connection handler]: select invoker doesn't have active channel");
+            NeptuneRpcClientCache.Windows.fail(invocation.getRequestId(),
+                    new RuntimeException("[neptune rpc client connection handler]: select invoker doesn't have active channel"));
+            return;
+        }
+        log.debug("[neptune rpc client connection handler]: send invocation - ip: {}, port: {}, serviceName: {}, methodName: {}",
+                invoker.getAddress(), invoker.getPort(), invocation.getServiceName(), invocation.getMethodName());
+        // 5. 记录连接和服务端上等待响应的请求数量: 无论收到响应、超时还是发送失败都会减少
+        AtomicInteger pending = NeptuneRpcChannelPool.pending(channel);
+        pending.incrementAndGet();
+        invoker.incrementActive();
+        long start = System.nanoTime();
+        response.whenComplete((result, cause) -> {
+            pending.decrementAndGet();
+            invoker.decrementActive();
+            // 注: 记录服务端的响应延迟; 超时说明服务端已经很慢, 同样计入, 其他失败和服务端的快慢无关, 不计入
+            if (Objects.isNull(cause) || cause instanceof TimeoutException){
+                long now = System.nanoTime();
+                invoker.getLatency().observe(now - start, now);
+            }
+        });
+        // 6. 调用序列化算法将调用请求直接写入连接的 I/O 缓冲区
+        // 注: 精简的调用请求不携带参数类型
+        ByteBuf content = serializer.serialize(compact ? invocation.compact() : invocation, channel.alloc());
+        if (Objects.isNull(content)){
+            log.error("[neptune rpc client connection handler]: serialize invocation fail - {}", invocation.getRequestId());
+            NeptuneRpcClientCache.Windows.fail(invocation.getRequestId(),
+                    new RuntimeException("[neptune rpc client connection handler]: serialize invocation fail"));
+            return;
+        }
+        NeptuneRpcProtocol message = new NeptuneRpcProtocol(invocation.getRequestId(), content, serializerCode);
+        // 7. 发送消息给对应的服务端: 如果发送失败, 那么直接唤醒调用方
+        channel.writeAndFlush(message).addListener(future -> {
+            if (!future.isSuccess()){
+                log.error("[neptune rpc client connection handler]: send invocation occurred error", future.cause());
+                NeptuneRpcClientCache.Windows.fail(invocation.getRequestId(), future.cause());
+            }
+        });
     }
 
     /**
@@ -125,13 +249,14 @@ public class NeptuneRpcConnectionHandler {
             return null;
         }
         // 2. 获取所有提供服务的服务端: 服务名 + 方法名共同决定
-        List<NeptuneRpcInvoker> invokers = NeptuneRpcClientCache.Connection.providers(invocation.getServiceName());
-        if (CollectionUtil.isEmpty(invokers)){
+        // 注: 返回的是不可变的快照, 服务端上下线时会整体替换, 所以不需要加锁也不需要复制
+        NeptuneRpcInvokerSnapshot snapshot = NeptuneRpcClientCache.Connection.snapshot(invocation.getServiceName());
+        if (snapshot.isEmpty()){
             log.warn("[neptune rpc client connection handler]: connection handler can't find provider");
             return null;
         }
-        // 注: 过滤不满足条件的服务端
-        filter.execute(invokers, invocation);
+        // 注: 过滤不满足条件的服务端: 过滤器直接返回快照中预先划分好的子快照
+        List<NeptuneRpcInvoker> invokers = filter.execute(snapshot, invocation).getInvokers();
         // 3. 采用最简单的策略实现负载均衡: 随机选择
         return loadBalance.select(invokers, invocation);
     }
@@ -0,0 +1,70 @@
+package org.nep.rpc.framework.core.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * <h3>客户端调用上下文: 负责发起异步调用</h3>
+ * <h3>1. 接口方法没有声明 CompletableFuture 返回值时, 可以通过上下文把同步方法当作异步方法调用</h3>
+ * <h3>2. 使用方式: CompletableFuture&lt;String&gt; future = NeptuneRpcContext.async(() -> service.send("neptune"));</h3>
+ */
+@Slf4j
+@SuppressWarnings("unchecked")
+public class NeptuneRpcContext {
+
+    /**
+     * <h3>每个调用线程都有自己的上下文</h3>
+     */
+    private static final ThreadLocal<NeptuneRpcContext> CONTEXT = ThreadLocal.withInitial(NeptuneRpcContext::new);
+
+    /**
+     * <h3>下一次调用是否为异步调用</h3>
+     */
+    private boolean async;
+
+    /**
+     * <h3>异步调用返回的 Future</h3>
+     */
+    private CompletableFuture<?> future;
+
+    /**
+     * <h3>异步发起调用: 代理类不会阻塞等待响应, 而是直接返回由客户端处理器完成的 Future</h3>
+     */
+    public static <T> CompletableFuture<T> async(Supplier<T> call){
+        NeptuneRpcContext context = CONTEXT.get();
+        context.async = true;
+        context.future = null;
+        try {
+            call.get();
+            // 注: 如果调用的不是代理对象, 那么上下文中不会有 Future
+            if (context.future == null){
+                log.error("[neptune rpc client context]: async call doesn't invoke remote service");
+                throw new IllegalStateException("[neptune rpc client context]: async call doesn't invoke remote service");
+            }
+            return (CompletableFuture<T>) context.future;
+        } finally {
+            context.async = false;
+            context.future = null;
+        }
+    }
+
+    /**
+     * <h3>代理类判断当前调用是否为异步调用</h3>
+     */
+    public static boolean isAsync(){
+        return CONTEXT.get().async;
+    }
+
+    /**
+     * <h3>代理类将异步调用的 Future 放入上下文</h3>
+     */
+    public static void setFuture(CompletableFuture<?> future){
+        NeptuneRpcContext context = CONTEXT.get();
+        // 注: 仅有第一次调用是异步调用, 避免 Supplier 中的多次调用覆盖 Future
+        context.async = false;
+        context.future = future;
+    }
+
+}
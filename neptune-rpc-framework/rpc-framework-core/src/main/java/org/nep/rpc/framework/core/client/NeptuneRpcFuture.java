@@ -0,0 +1,43 @@
+package org.nep.rpc.framework.core.client;
+
+import io.netty.util.Timeout;
+import lombok.Getter;
+import lombok.Setter;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <h3>等待响应的调用</h3>
+ * <h3>1. 由客户端处理器在收到响应时完成</h3>
+ * <h3>2. 如果超过超时时间还没有收到响应, 那么由时间轮移除并且以超时异常结束</h3>
+ */
+@Getter
+public class NeptuneRpcFuture extends CompletableFuture<NeptuneRpcResponse> {
+
+    /**
+     * <h3>请求序列号</h3>
+     */
+    private final long requestId;
+
+    /**
+     * <h3>时间轮中的超时任务</h3>
+     */
+    @Setter
+    private volatile Timeout timeout;
+
+    public NeptuneRpcFuture(long requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * <h3>收到响应或者调用被移除时取消超时任务</h3>
+     */
+    public void cancelTimeout(){
+        Timeout timeout = this.timeout;
+        if (timeout != null){
+            timeout.cancel();
+        }
+    }
+
+}
@@ -1,13 +1,19 @@
 package org.nep.rpc.framework.core.client;
 
-import io.netty.channel.ChannelFuture;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.ToString;
 import lombok.experimental.Accessors;
 import org.nep.rpc.framework.registry.url.NeptuneURL;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * <h3>建立连接相关的封装类</h3>
+ * <h3>注: 服务端放入快照之后就不再修改, 权重变化时生成新的服务端然后替换快照</h3>
  */
 @Data
 @ToString
@@ -52,5 +58,72 @@ public class NeptuneRpcInvoker {
      */
     private String group;
 
-    private ChannelFuture future;
+    /**
+     * <h3>和服务器之间建立的所有连接</h3>
+     */
+    private NeptuneRpcChannelPool channels;
+
+    /**
+     * <h3>发送给服务器但是还没有结束的请求数量: 收到响应、超时或者发送失败都算结束</h3>
+     * <h3>注: 每次调用都会修改, 采用分段计数器避免多个调用方线程竞争同一个变量</h3>
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final LongAdder actives;
+
+    /**
+     * <h3>服务器响应延迟的移动平均值</h3>
+     */
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final NeptuneRpcLatency latency;
+
+    public NeptuneRpcInvoker() {
+        this(new LongAdder(), new NeptuneRpcLatency());
+    }
+
+    private NeptuneRpcInvoker(LongAdder actives, NeptuneRpcLatency latency) {
+        this.actives = actives;
+        this.latency = latency;
+    }
+
+    /**
+     * <h3>生成权重变化之后的服务端: 共享连接池、活跃请求数量和响应延迟, 不会修改当前的服务端</h3>
+     * <h3>注: 旧快照中的服务端依然可能被其他线程读取, 所以不能直接修改权重</h3>
+     */
+    public NeptuneRpcInvoker reweight(int weight){
+        return new NeptuneRpcInvoker(actives, latency)
+                       .setUrl(url)
+                       .setApplicationName(applicationName)
+                       .setServiceName(serviceName)
+                       .setPort(port)
+                       .setAddress(address)
+                       .setFixedWeight(weight)
+                       .setDynamicWeight(weight)
+                       .setGroup(group)
+                       .setChannels(channels);
+    }
+
+    /**
+     * <h3>发送请求前增加活跃请求数量</h3>
+     */
+    public void incrementActive(){
+        actives.increment();
+    }
+
+    /**
+     * <h3>请求结束后减少活跃请求数量</h3>
+     */
+    public void decrementActive(){
+        actives.decrement();
+    }
+
+    /**
+     * <h3>活跃请求数量</h3>
+     */
+    public long getActive(){
+        return actives.sum();
+    }
 }
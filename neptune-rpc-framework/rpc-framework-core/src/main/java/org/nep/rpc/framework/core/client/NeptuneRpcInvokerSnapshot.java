@@ -0,0 +1,137 @@
+package org.nep.rpc.framework.core.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <h3>服务提供者的不可变快照: 服务端上线或者下线时生成新的快照, 然后整体替换</h3>
+ * <h3>1. 快照生成之后不会再被修改, 所以负载均衡和过滤器可以不加锁直接读取</h3>
+ * <h3>2. 生成快照时就按照分组和服务端地址划分好子快照, 过滤器只需要查一次哈希表</h3>
+ */
+public final class NeptuneRpcInvokerSnapshot {
+
+    /**
+     * <h3>没有指定分组的服务端默认属于的分组</h3>
+     */
+    public static final String DEFAULT_GROUP = "default";
+
+    public static final NeptuneRpcInvokerSnapshot EMPTY = new NeptuneRpcInvokerSnapshot(Collections.emptyMap());
+
+    /**
+     * <h3>IP 地址 + 端口号 => 服务端</h3>
+     */
+    private final Map<String, NeptuneRpcInvoker> endpoints;
+
+    /**
+     * <h3>提供服务的所有服务端</h3>
+     */
+    private final List<NeptuneRpcInvoker> invokers;
+
+    /**
+     * <h3>分组 => 仅包含这个分组的服务端的子快照</h3>
+     */
+    private final Map<String, NeptuneRpcInvokerSnapshot> groups;
+
+    /**
+     * <h3>IP 地址 + 端口号 => 仅包含这个服务端的子快照</h3>
+     */
+    private final Map<String, NeptuneRpcInvokerSnapshot> directs;
+
+    private NeptuneRpcInvokerSnapshot(Map<String, NeptuneRpcInvoker> endpoints) {
+        this.endpoints = Collections.unmodifiableMap(endpoints);
+        this.invokers = Collections.unmodifiableList(new ArrayList<>(endpoints.values()));
+        this.groups = partitionByGroup();
+        this.directs = partitionByEndpoint();
+    }
+
+    /**
+     * <h3>生成添加服务端之后的快照</h3>
+     */
+    public NeptuneRpcInvokerSnapshot with(String endpoint, NeptuneRpcInvoker invoker){
+        Map<String, NeptuneRpcInvoker> copy = new LinkedHashMap<>(endpoints);
+        copy.put(endpoint, invoker);
+        return new NeptuneRpcInvokerSnapshot(copy);
+    }
+
+    /**
+     * <h3>生成移除服务端之后的快照</h3>
+     */
+    public NeptuneRpcInvokerSnapshot without(String endpoint){
+        Map<String, NeptuneRpcInvoker> copy = new LinkedHashMap<>(endpoints);
+        copy.remove(endpoint);
+        return copy.isEmpty() ? EMPTY : new NeptuneRpcInvokerSnapshot(copy);
+    }
+
+    /**
+     * <h3>获取分组对应的子快照: 如果不存在, 那么返回空快照</h3>
+     */
+    public NeptuneRpcInvokerSnapshot group(String group){
+        return groups.getOrDefault(group, EMPTY);
+    }
+
+    /**
+     * <h3>获取服务端地址对应的子快照: 如果不存在, 那么返回空快照</h3>
+     */
+    public NeptuneRpcInvokerSnapshot direct(String endpoint){
+        return directs.getOrDefault(endpoint, EMPTY);
+    }
+
+    public NeptuneRpcInvoker get(String endpoint){
+        return endpoints.get(endpoint);
+    }
+
+    public boolean contains(String endpoint){
+        return endpoints.containsKey(endpoint);
+    }
+
+    public boolean isEmpty(){
+        return invokers.isEmpty();
+    }
+
+    public List<NeptuneRpcInvoker> getInvokers(){
+        return invokers;
+    }
+
+    /**
+     * <h3>服务端所属的分组: 没有指定分组的服务端属于默认分组</h3>
+     */
+    public static String groupOf(NeptuneRpcInvoker invoker){
+        return Objects.isNull(invoker.getGroup()) ? DEFAULT_GROUP : invoker.getGroup();
+    }
+
+    private Map<String, NeptuneRpcInvokerSnapshot> partitionByGroup(){
+        // 1. 按照分组划分服务端
+        Map<String, Map<String, NeptuneRpcInvoker>> partitions = new HashMap<>();
+        endpoints.forEach((endpoint, invoker) ->
+                partitions.computeIfAbsent(groupOf(invoker), key -> new LinkedHashMap<>()).put(endpoint, invoker));
+        // 2. 如果所有服务端都属于同一个分组, 那么子快照就是自己
+        // 注: 子快照也会继续划分, 所以只有一个分组时必须直接返回, 否则会无限递归
+        if (partitions.size() <= 1){
+            return partitions.isEmpty() ? Collections.emptyMap()
+                           : Collections.singletonMap(partitions.keySet().iterator().next(), this);
+        }
+        // 3. 生成每个分组的子快照
+        Map<String, NeptuneRpcInvokerSnapshot> snapshots = new HashMap<>(partitions.size() * 2);
+        partitions.forEach((group, partition) -> snapshots.put(group, new NeptuneRpcInvokerSnapshot(partition)));
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    private Map<String, NeptuneRpcInvokerSnapshot> partitionByEndpoint(){
+        // 1. 如果只有一个服务端, 那么子快照就是自己
+        if (endpoints.size() <= 1){
+            return endpoints.isEmpty() ? Collections.emptyMap()
+                           : Collections.singletonMap(endpoints.keySet().iterator().next(), this);
+        }
+        // 2. 生成每个服务端的子快照
+        Map<String, NeptuneRpcInvokerSnapshot> snapshots = new HashMap<>(endpoints.size() * 2);
+        endpoints.forEach((endpoint, invoker) ->
+                snapshots.put(endpoint, new NeptuneRpcInvokerSnapshot(Collections.singletonMap(endpoint, invoker))));
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+}
@@ -0,0 +1,47 @@
+package org.nep.rpc.framework.core.client;
+
+/**
+ * <h3>服务端响应延迟的峰值指数加权移动平均 (peak EWMA)</h3>
+ * <h3>1. 新的延迟比平均值大时直接采用新的延迟: 服务端变慢时立刻就能感知到</h3>
+ * <h3>2. 新的延迟比平均值小时按照距离上次更新的时间衰减: 服务端恢复之后平均值逐渐下降</h3>
+ * <h3>注: 读取时也会按照时间衰减, 长时间没有请求的服务端会重新获得机会</h3>
+ */
+public class NeptuneRpcLatency {
+
+    /**
+     * <h3>衰减的时间常数: 10 秒</h3>
+     */
+    private static final double DECAY_NANOS = 10_000_000_000D;
+
+    /**
+     * <h3>当前的延迟平均值: 纳秒</h3>
+     */
+    private double cost;
+
+    /**
+     * <h3>上次更新平均值的时间: 纳秒</h3>
+     */
+    private long timestamp = System.nanoTime();
+
+    /**
+     * <h3>记录一次请求的响应延迟</h3>
+     */
+    public synchronized void observe(long latency, long now){
+        double weight = decay(now);
+        cost = latency > cost ? latency : cost * weight + latency * (1 - weight);
+        timestamp = now;
+    }
+
+    /**
+     * <h3>获取衰减到当前时间的延迟平均值: 纳秒</h3>
+     * <h3>注: 还没有收到过响应的服务端返回 0</h3>
+     */
+    public synchronized double cost(long now){
+        return cost * decay(now);
+    }
+
+    private double decay(long now){
+        return Math.exp(-Math.max(now - timestamp, 0) / DECAY_NANOS);
+    }
+
+}
@@ -48,6 +48,10 @@ public class NeptuneRpcReference {
         this.attachments.put(TIMEOUT, timeout);
     }
 
+    public Integer getTimeout(){
+        return (Integer) this.attachments.get(TIMEOUT);
+    }
+
     public void setRetryTime(int retryTime){
         this.attachments.put(RETRY_TIME, retryTime);
     }
@@ -1,20 +1,29 @@
 package org.nep.rpc.framework.core.common.cache;
 
-import cn.hutool.core.collection.CollectionUtil;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
+import org.nep.rpc.framework.core.client.NeptuneRpcChannelPool;
+import org.nep.rpc.framework.core.client.NeptuneRpcFuture;
 import org.nep.rpc.framework.core.client.NeptuneRpcInvoker;
-import org.nep.rpc.framework.core.common.constant.Separator;
-import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
+import org.nep.rpc.framework.core.client.NeptuneRpcInvokerSnapshot;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcResponse;
 import org.nep.rpc.framework.registry.url.NeptuneURL;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -24,87 +33,212 @@ import java.util.stream.Collectors;
 public class NeptuneRpcClientCache {
 
     /**
-     * <h3>1. 动态代理类会封装好消息然后放入阻塞队列中</h3>
-     * <h3>2. 异步线程就会从阻塞队列中获取消息然后发送给服务端</h3>
+     * <h3>1. 发送消息前会在本地登记消息的序列号以及对应的 Future</h3>
+     * <h3>2. 接收消息的时候根据消息携带的序列号找到对应的 Future 并且直接唤醒等待的调用方</h3>
+     * <h3>3. 序列号由单调递增的计数器生成, 所以任意并发下都不会重复; 哈希表采用基本类型作为键, 匹配响应时不需要装箱</h3>
+     * <h3>4. 窗口是有界的: 超过容量的请求直接拒绝, 超时的请求由时间轮移除, 保证客户端堆内存不会无限增长</h3>
      */
-    public static class MessageQueue{
-        private static final int SEND_MESSAGE_QUEUE_SIZE = 100;
+    public static class Windows{
 
-        private static final BlockingQueue<NeptuneRpcInvocation> MESSAGE_QUEUE =
-                new ArrayBlockingQueue<>(SEND_MESSAGE_QUEUE_SIZE);
+        /**
+         * <h3>分段数量: 必须是 2 的幂</h3>
+         */
+        private static final int SEGMENT_COUNT = 16;
+
+        /**
+         * <h3>默认的窗口容量: 同时等待响应的请求数量上限</h3>
+         */
+        private static final int DEFAULT_CAPACITY = 65536;
+
+        /**
+         * <h3>默认的调用超时时间: 毫秒</h3>
+         * <h3>注: 超时的请求才会释放窗口容量, 所以默认值不能太长, 否则没有响应的服务端会占满窗口</h3>
+         */
+        private static final long DEFAULT_TIMEOUT = 3000;
 
-        public static NeptuneRpcInvocation receive(){
-            NeptuneRpcInvocation message = null;
-            try {
-                message = MESSAGE_QUEUE.take();
-            } catch (InterruptedException e) {
-                log.error("[Neptune RPC Client]: 客户端异步线程获取消息出现错误", e);
+        /**
+         * <h3>时间轮的刻度</h3>
+         */
+        private static final long TICK_DURATION = 10;
+
+        /**
+         * <h3>请求序列号生成器</h3>
+         */
+        private static final AtomicLong REQUEST_ID = new AtomicLong(0);
+
+        /**
+         * <h3>正在等待响应的请求数量</h3>
+         */
+        private static final AtomicInteger INFLIGHT = new AtomicInteger(0);
+
+        /**
+         * <h3>因为超时被移除的请求数量</h3>
+         */
+        private static final LongAdder EXPIRED = new LongAdder();
+
+        /**
+         * <h3>负责移除超时请求的时间轮: 守护线程, 不影响客户端关闭</h3>
+         */
+        private static final HashedWheelTimer TIMER = new HashedWheelTimer(
+                new DefaultThreadFactory("neptune-rpc-window-timer", true), TICK_DURATION, TimeUnit.MILLISECONDS);
+
+        /**
+         * <h3>LongObjectHashMap 不是线程安全的, 所以按照序列号分段加锁, 降低锁竞争</h3>
+         */
+        private static final Segment[] RESPONSE = new Segment[SEGMENT_COUNT];
+
+        private static volatile int capacity = DEFAULT_CAPACITY;
+
+        private static volatile long timeout = DEFAULT_TIMEOUT;
+
+        static {
+            for (int index = 0; index < SEGMENT_COUNT; index++) {
+                RESPONSE[index] = new Segment();
             }
-            return message;
         }
 
-        public static NeptuneRpcInvocation receive(long timeout, TimeUnit unit){
-            // 1. 判断传入的时间单位是否存在问题
-            if (timeout <= 0 || unit == null){
-                log.error("[Neptune RPC Client]: 客户端异步线程获取消息的时间单位错误");
-                return null;
+        /**
+         * <h3>设置窗口容量</h3>
+         */
+        public static void init(int capacity){
+            if (capacity <= 0){
+                log.error("[neptune rpc client cache]: window capacity must be positive - {}", capacity);
+                return;
             }
-            // 2. 获取阻塞队列中的消息
-            NeptuneRpcInvocation message = null;
-            try {
-                message = MESSAGE_QUEUE.poll(timeout, unit);
-                log.debug("message: {}", message);
-            } catch (InterruptedException e) {
-                log.error("[Neptune RPC Client]: 客户端异步线程获取消息出现错误", e);
+            Windows.capacity = capacity;
+        }
+
+        /**
+         * <h3>设置默认的调用超时时间: 引用没有配置超时时间时采用</h3>
+         */
+        public static void initTimeout(long timeout){
+            if (timeout <= 0){
+                log.error("[neptune rpc client cache]: window timeout must be positive - {}", timeout);
+                return;
             }
-            return message;
+            Windows.timeout = timeout;
+        }
+
+        /**
+         * <h3>获取默认的调用超时时间: 毫秒</h3>
+         */
+        public static long getTimeout(){
+            return timeout;
         }
 
-        public static void send(NeptuneRpcInvocation message){
-            // 1. 判断消息是否为空
-            if (message == null){
-                log.error("[Neptune RPC Client]: 客户端的代理类将要发送的消息为空");
+        /**
+         * <h3>生成下一个请求序列号</h3>
+         */
+        public static long nextRequestId(){
+            return REQUEST_ID.incrementAndGet();
+        }
+
+        /**
+         * <h3>登记即将发送的请求, 返回等待响应的 Future</h3>
+         * <h3>注: 如果窗口已满, 那么返回的 Future 已经以异常结束, 调用方不应该再发送请求</h3>
+         */
+        public static NeptuneRpcFuture put(long requestId, long timeoutMillis){
+            NeptuneRpcFuture future = new NeptuneRpcFuture(requestId);
+            // 1. 检查窗口是否还有容量
+            if (INFLIGHT.incrementAndGet() > capacity){
+                INFLIGHT.decrementAndGet();
+                log.error("[neptune rpc client cache]: window is full, reject request - {}", requestId);
+                future.completeExceptionally(new RejectedExecutionException("[neptune rpc client cache]: window is full"));
+                return future;
+            }
+            // 2. 添加超时任务: 如果超时之后还没有收到响应, 那么就移除请求
+            // 注: 必须在登记请求之前添加, 否则登记之后立刻收到响应时取消不了超时任务
+            future.setTimeout(TIMER.newTimeout(timeout -> expire(future), timeoutMillis, TimeUnit.MILLISECONDS));
+            // 3. 登记请求
+            LongObjectHashMap<NeptuneRpcFuture> segment = segment(requestId);
+            synchronized (segment){
+                segment.put(requestId, future);
+            }
+            // 注: 超时时间很短时, 超时任务可能在登记之前就已经执行, 那么直接移除登记的请求
+            if (future.isDone()){
+                remove(requestId);
+            }
+            return future;
+        }
+
+        /**
+         * <h3>收到响应后移除登记的请求并且唤醒等待的调用方</h3>
+         */
+        public static void complete(long requestId, NeptuneRpcResponse response){
+            if (response == null){
+                log.error("[neptune rpc client cache]: window response is null");
                 return;
             }
-            // 2. 发送消息
-            try {
-                log.debug("message: {}", message);
-                MESSAGE_QUEUE.put(message);
-            } catch (InterruptedException e) {
-                log.error("[Neptune RPC Client]: 客户端的代理类发送消息出翔异常");
+            NeptuneRpcFuture future = remove(requestId);
+            // 注: 调用方已经超时放弃等待, 或者是服务端响应的序列号错误
+            if (future == null){
+                log.warn("[neptune rpc client cache]: window can't match response sequence - {}", requestId);
+                return;
             }
+            future.complete(response);
         }
-    }
 
-    /**
-     * <h3>1. 发送消息前会在本地保留消息的序列号</h3>
-     * <h3>2. 接收消息的时候就将消息携带的序列号和本地比较, 如果匹配, 那么收到的就是正确的</h3>
-     */
-    public static class Windows{
-        private static final Map<String, Object> RESPONSE = new ConcurrentHashMap<>();
+        /**
+         * <h3>请求无法发送时移除登记的请求并且唤醒等待的调用方</h3>
+         */
+        public static void fail(long requestId, Throwable cause){
+            NeptuneRpcFuture future = remove(requestId);
+            if (future != null){
+                future.completeExceptionally(cause);
+            }
+        }
 
-        public static boolean match(String sequence){
-            if (sequence == null || !RESPONSE.containsKey(sequence)){
-                log.error("[Neptune RPC Client]: 服务端响应错误");
-                return false;
+        /**
+         * <h3>移除登记的请求</h3>
+         */
+        public static NeptuneRpcFuture remove(long requestId){
+            NeptuneRpcFuture future;
+            LongObjectHashMap<NeptuneRpcFuture> segment = segment(requestId);
+            synchronized (segment){
+                future = segment.remove(requestId);
             }
-            return true;
+            if (future != null){
+                INFLIGHT.decrementAndGet();
+                future.cancelTimeout();
+            }
+            return future;
         }
 
-        public static void put(String key, Object value){
-            if (key == null || value == null){
-                log.error("[Neptune RPC Client]: 存放的键值对不可以为空");
+        /**
+         * <h3>正在等待响应的请求数量</h3>
+         */
+        public static int inflight(){
+            return INFLIGHT.get();
+        }
+
+        /**
+         * <h3>因为超时被移除的请求数量</h3>
+         */
+        public static long expired(){
+            return EXPIRED.sum();
+        }
+
+        /**
+         * <h3>时间轮回调: 移除超时的请求</h3>
+         */
+        private static void expire(NeptuneRpcFuture future){
+            // 注: 请求可能还没有登记, 所以不根据移除的结果判断, 而是根据 Future 是否已经结束判断
+            remove(future.getRequestId());
+            if (!future.completeExceptionally(new TimeoutException("[neptune rpc client proxy]: client remote call timeout"))){
                 return;
             }
-            RESPONSE.put(key, value);
+            EXPIRED.increment();
+            log.warn("[neptune rpc client cache]: window request timeout - {}", future.getRequestId());
         }
 
-        public static Object get(String key){
-            if (key == null){
-                log.error("[Neptune RPC Client]: 存放的键值对不可以为空");
-                return null;
-            }
-            return RESPONSE.get(key);
+        private static LongObjectHashMap<NeptuneRpcFuture> segment(long requestId){
+            return RESPONSE[(int) (requestId & (SEGMENT_COUNT - 1))];
+        }
+
+        /**
+         * <h3>注: 泛型类型不能直接创建数组, 所以定义确定类型的子类</h3>
+         */
+        private static final class Segment extends LongObjectHashMap<NeptuneRpcFuture> {
         }
 
     }
@@ -156,52 +290,118 @@ public class NeptuneRpcClientCache {
     }
 
     /**
-     * <h3>主要负责管理每个服务对应的连接集合</h3>
+     * <h3>主要负责管理和每个服务端之间建立的连接: IP 地址 + 端口号 => 连接池</h3>
+     * <h3>注: 同一个服务端提供的所有服务共用相同的连接, 连接池采用引用计数, 没有服务引用时才会关闭</h3>
+     */
+    public static class Endpoint{
+
+        private static final Map<String, NeptuneRpcChannelPool> endpoints = new HashMap<>();
+
+        /**
+         * <h3>获取服务端的连接池: 如果还没有建立连接, 那么就调用工厂建立连接</h3>
+         */
+        public static synchronized NeptuneRpcChannelPool acquire(String endpoint, Supplier<NeptuneRpcChannelPool> factory){
+            NeptuneRpcChannelPool channels = endpoints.get(endpoint);
+            // 1. 如果还没有和服务端建立过连接, 那么就建立新的连接: 连接是异步建立的, 不会阻塞
+            if (Objects.isNull(channels)){
+                channels = factory.get();
+                if (Objects.isNull(channels)){
+                    return null;
+                }
+                endpoints.put(endpoint, channels);
+            }
+            // 3. 增加引用计数
+            channels.retain();
+            return channels;
+        }
+
+        /**
+         * <h3>释放服务端的连接池: 如果已经没有服务引用, 那么就关闭所有连接</h3>
+         */
+        public static synchronized void release(String endpoint){
+            NeptuneRpcChannelPool channels = endpoints.get(endpoint);
+            if (Objects.isNull(channels)){
+                log.warn("[neptune rpc client cache]: release endpoint doesn't exist - {}", endpoint);
+                return;
+            }
+            if (channels.release() == 0){
+                endpoints.remove(endpoint);
+                channels.close();
+            }
+        }
+
+        public static synchronized NeptuneRpcChannelPool get(String endpoint){
+            return endpoints.get(endpoint);
+        }
+    }
+
+    /**
+     * <h3>主要负责管理每个服务对应的服务端: 服务名 => 服务端快照</h3>
+     * <h3>注: 服务端上线或者下线时复制快照并且整体替换, 负载均衡读取快照时不需要加锁, 也不会看到修改到一半的集合</h3>
      */
     public static class Connection{
-        // 注: 每个服务都会有多个应用提供, 这里的集合就是客户端和提供服务的应用建立的所有连接
-        private static final Map<String, List<NeptuneRpcInvoker>> connections
+        // 注: 每个服务都会有多个应用提供, 这里的快照就是提供服务的所有应用
+        private static final Map<String, NeptuneRpcInvokerSnapshot> connections
                 = new ConcurrentHashMap<>();
-        public static void connect(String service, NeptuneRpcInvoker wrapper){
-            // 1. 查询该服务是否已经有连接集合, 如果没有创建一个
-            List<NeptuneRpcInvoker> connections
-                    = Connection.connections.getOrDefault(service, new ArrayList<>());
-            // 2. 添加新的连接
-            connections.add(wrapper);
-            // 3. 更新连接集合
-            Connection.connections.put(service, connections);
-        }
-
-        public static NeptuneRpcInvoker disconnect(String service, String path){
-            List<NeptuneRpcInvoker> connections = Connection.connections.get(service);
-            if (CollectionUtil.isNotEmpty(connections)){
-                for (int index = 0; index < connections.size(); index++) {
-                    NeptuneRpcInvoker wrapper = connections.get(index);
-                    if (path.equals(wrapper.getAddress() + ":" + wrapper.getPort())){
-                        return connections.remove(index);
-                    }
-                }
+
+        /**
+         * <h3>记录提供服务的服务端: 如果已经记录过, 那么返回 false</h3>
+         */
+        public static synchronized boolean connect(String service, String endpoint, NeptuneRpcInvoker invoker){
+            NeptuneRpcInvokerSnapshot snapshot = snapshot(service);
+            if (snapshot.contains(endpoint)){
+                return false;
             }
-            return null;
+            connections.put(service, snapshot.with(endpoint, invoker));
+            return true;
         }
 
-        public static List<NeptuneRpcInvoker> providers(String serviceName){
-            // TODO 如果仅通过服务名确定, 那么有可能服务端没有提供需要的方法, 那么就无法反射执行, 这种情况感觉比较极端, 暂时不考虑
-            return connections.getOrDefault(serviceName, new ArrayList<>());
+        public static synchronized NeptuneRpcInvoker disconnect(String service, String endpoint){
+            NeptuneRpcInvokerSnapshot snapshot = snapshot(service);
+            NeptuneRpcInvoker invoker = snapshot.get(endpoint);
+            if (Objects.isNull(invoker)){
+                return null;
+            }
+            NeptuneRpcInvokerSnapshot remain = snapshot.without(endpoint);
+            if (remain == NeptuneRpcInvokerSnapshot.EMPTY){
+                connections.remove(service);
+            }else{
+                connections.put(service, remain);
+            }
+            return invoker;
         }
 
-        public static boolean isConnect(String serviceName, String path){
-            // 1. 获取所有的服务对应的连接
-            List<NeptuneRpcInvoker> connections = Connection.connections.getOrDefault(serviceName, new ArrayList<>());
-            // 2. 如果连接集合为空, 那么就认为该服务还没有服务端提供, 可以建立连接
-            if (CollectionUtil.isEmpty(connections))
+        /**
+         * <h3>更新服务端的权重: 如果服务端不存在, 那么返回 false</h3>
+         * <h3>注: 生成权重变化之后的新服务端然后替换快照, 旧快照中的服务端不会被修改</h3>
+         */
+        public static synchronized boolean reweight(String service, String endpoint, int weight){
+            NeptuneRpcInvokerSnapshot snapshot = snapshot(service);
+            NeptuneRpcInvoker invoker = snapshot.get(endpoint);
+            if (Objects.isNull(invoker)){
                 return false;
-            // 3. 如果连接集合不为空, 那么就循环判断传入的服务端是否已经建立过连接
-            for (NeptuneRpcInvoker connection : connections) {
-                if (path.equals(connection.getAddress() + Separator.COLON + connection.getPort()))
-                    return true;
             }
-            return false;
+            connections.put(service, snapshot.with(endpoint, invoker.reweight(weight)));
+            return true;
+        }
+
+        /**
+         * <h3>获取服务的快照: 如果没有服务端提供服务, 那么返回空快照</h3>
+         */
+        public static NeptuneRpcInvokerSnapshot snapshot(String serviceName){
+            return connections.getOrDefault(serviceName, NeptuneRpcInvokerSnapshot.EMPTY);
+        }
+
+        /**
+         * <h3>注: 返回的集合不可修改, 过滤器需要返回新的集合</h3>
+         */
+        public static List<NeptuneRpcInvoker> providers(String serviceName){
+            // TODO 如果仅通过服务名确定, 那么有可能服务端没有提供需要的方法, 那么就无法反射执行, 这种情况感觉比较极端, 暂时不考虑
+            return snapshot(serviceName).getInvokers();
+        }
+
+        public static boolean isConnect(String serviceName, String endpoint){
+            return snapshot(serviceName).contains(endpoint);
         }
     }
 }
@@ -1,7 +1,11 @@
 package org.nep.rpc.framework.core.common.cache;
 
 import cn.hutool.core.util.StrUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
 import lombok.extern.slf4j.Slf4j;
+import org.nep.rpc.framework.core.server.NeptuneRpcMethod;
+import org.nep.rpc.framework.core.server.NeptuneRpcMethodTable;
 import org.nep.rpc.framework.core.server.NeptuneServiceWrapper;
 import org.nep.rpc.framework.registry.url.NeptuneURL;
 
@@ -19,6 +23,14 @@ public class NeptuneRpcServerCache {
     public static class Service{
         private static final Map<String, NeptuneServiceWrapper> services = new HashMap<>();
 
+        private static volatile boolean isolated = false;
+
+        /**
+         * <h3>方法编号 => 编号相同的所有方法: 所有服务的方法编号都在同一个哈希表中</h3>
+         * <h3>注: 登记服务时复制出新的哈希表然后整体替换, 发布之后不再修改, 所以查找时不需要加锁</h3>
+         */
+        private static volatile IntObjectMap<NeptuneRpcMethod[]> methods = new IntObjectHashMap<>();
+
         /**
          * <h3>根据服务名获取服务</h3>
          */
@@ -39,6 +51,69 @@ public class NeptuneRpcServerCache {
                 return;
             }
             services.put(serviceName, wrapper);
+            if (Objects.nonNull(wrapper.getDispatcher()))
+                isolated = true;
+            if (Objects.nonNull(wrapper.getMethods()))
+                registerMethods(wrapper.getMethods());
+        }
+
+        /**
+         * <h3>登记服务的所有方法编号</h3>
+         * <h3>1. 服务名和方法签名都相同的方法是同一个方法, 重新导出服务时直接替换</h3>
+         * <h3>2. 编号相同的不同方法都保留下来, 查找时再根据服务名和方法名区分</h3>
+         */
+        private static synchronized void registerMethods(NeptuneRpcMethodTable table){
+            IntObjectMap<NeptuneRpcMethod[]> copy = new IntObjectHashMap<>(methods.size() + table.getMethods().length);
+            copy.putAll(methods);
+            for (NeptuneRpcMethod method : table.getMethods()) {
+                List<NeptuneRpcMethod> candidates = new ArrayList<>();
+                NeptuneRpcMethod[] previous = copy.get(method.getId());
+                if (Objects.nonNull(previous)){
+                    for (NeptuneRpcMethod candidate : previous) {
+                        if (!candidate.getServiceName().equals(method.getServiceName())
+                                    || !candidate.getSignature().equals(method.getSignature()))
+                            candidates.add(candidate);
+                    }
+                }
+                if (!candidates.isEmpty()){
+                    log.warn("[neptune rpc server cache]: method id collision, distinguish by method name - {}, {}", candidates, method);
+                }
+                candidates.add(method);
+                copy.put(method.getId(), candidates.toArray(new NeptuneRpcMethod[0]));
+            }
+            methods = copy;
+        }
+
+        /**
+         * <h3>根据方法编号获取方法: 方法编号相同时根据服务名和方法名区分, 无法区分时返回 null</h3>
+         * <h3>注: 服务名和方法名为空时只有编号唯一的方法才能找到</h3>
+         */
+        public static NeptuneRpcMethod getMethod(int id, String serviceName, String methodName){
+            NeptuneRpcMethod[] candidates = methods.get(id);
+            if (Objects.isNull(candidates)){
+                return null;
+            }
+            NeptuneRpcMethod target = null;
+            for (NeptuneRpcMethod candidate : candidates) {
+                if ((Objects.isNull(serviceName) || candidate.getServiceName().equals(serviceName))
+                            && (Objects.isNull(methodName) || candidate.getMethod().getName().equals(methodName))){
+                    if (Objects.nonNull(target))
+                        return null;
+                    target = candidate;
+                }
+            }
+            return target;
+        }
+
+        /**
+         * <h3>是否有服务使用独占的业务线程池</h3>
+         */
+        public static boolean isIsolated(){
+            return isolated;
+        }
+
+        public static Collection<NeptuneServiceWrapper> getServices(){
+            return services.values();
         }
 
     }
@@ -2,6 +2,7 @@ package org.nep.rpc.framework.core.common.config;
 
 import lombok.Data;
 import lombok.ToString;
+import org.nep.rpc.framework.core.compress.NeptuneCompressorType;
 import org.nep.rpc.framework.core.proxy.ProxyFactory;
 import org.nep.rpc.framework.core.serialize.INeptuneSerializer;
 import org.nep.rpc.framework.core.router.INeptuneRpcLoadBalance;
@@ -23,4 +24,22 @@ public class NeptuneRpcClientConfig {
     private INeptuneRpcLoadBalance loadBalanceStrategy;
     // 客户端访问的注册中心
     private NeptuneRpcRegisterConfig registerConfig;
+    // 客户端同时等待响应的请求数量上限
+    private Integer windowSize;
+    // 客户端调用请求的默认超时时间: 毫秒
+    private Integer callTimeout;
+    // 客户端和每个服务端建立的连接数量
+    private Integer connectionSize;
+    // 客户端是否发送不携带参数类型的精简调用请求
+    private Boolean compactInvocation;
+    // 客户端调用请求采用的压缩算法
+    private NeptuneCompressorType compressor;
+    // 客户端调用请求超过这个长度才会压缩
+    private Integer compressThreshold;
+    // 客户端接收的数据包最大长度
+    private Integer maxFrameLength;
+    // 客户端发送的消息体超过这个长度会拆分成多个分片
+    private Integer chunkSize;
+    // 客户端接收的分片重组之后的消息体最大长度
+    private Integer maxMessageLength;
 }
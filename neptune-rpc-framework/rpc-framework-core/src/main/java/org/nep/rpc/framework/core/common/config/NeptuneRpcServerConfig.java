@@ -2,6 +2,7 @@ package org.nep.rpc.framework.core.common.config;
 
 import lombok.Data;
 import lombok.ToString;
+import org.nep.rpc.framework.core.compress.NeptuneCompressorType;
 import org.nep.rpc.framework.core.serialize.INeptuneSerializer;
 
 import java.net.InetAddress;
@@ -22,5 +23,21 @@ public class NeptuneRpcServerConfig {
     private NeptuneRpcRegisterConfig config;
     // 服务端采用的序列化算法
     private INeptuneSerializer serializer;
+    // 服务端业务线程池类型: fixed, virtual, direct
+    private String dispatchType;
+    // 服务端业务线程池线程数量
+    private Integer dispatchThreads;
+    // 服务端业务线程池队列长度
+    private Integer dispatchQueues;
+    // 服务端响应采用的压缩算法
+    private NeptuneCompressorType compressor;
+    // 服务端响应超过这个长度才会压缩
+    private Integer compressThreshold;
+    // 服务端接收的数据包最大长度
+    private Integer maxFrameLength;
+    // 服务端发送的消息体超过这个长度会拆分成多个分片
+    private Integer chunkSize;
+    // 服务端接收的分片重组之后的消息体最大长度
+    private Integer maxMessageLength;
 
 }
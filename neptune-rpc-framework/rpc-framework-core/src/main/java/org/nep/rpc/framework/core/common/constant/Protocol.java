@@ -1,5 +1,7 @@
 package org.nep.rpc.framework.core.common.constant;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * <h3>协议常量</h3>
  */
@@ -7,6 +9,23 @@ public class Protocol
 {
     // 1. 魔数
     public static final String MAGIC_NUMBER = "NEPTUNE";
+    // 注: 编解码时直接使用魔数的字节数组, 不需要每次都转换
+    public static final byte[] MAGIC_BYTES = MAGIC_NUMBER.getBytes(StandardCharsets.US_ASCII);
     // 2. 版本号
-    public static final byte PROTOCOL_VERSION = 1;
+    // 注: 版本 2 在序列化算法之后增加了压缩算法字段, 版本 3 增加了分片标记和分片序号字段
+    public static final byte PROTOCOL_VERSION = 3;
+    // 3. 协议头长度: 魔数 7B + 版本号 1B + 序列化算法 1B + 压缩算法 1B + 分片标记 1B + 请求序列号 8B + 分片序号 4B + 消息体长度 4B
+    public static final int HEADER_LENGTH = MAGIC_BYTES.length + 1 + 1 + 1 + 1 + 8 + 4 + 4;
+    // 4. 数据包默认最大长度
+    public static final int MAX_FRAME_LENGTH = 1024 * 1024;
+    // 5. 消息体超过这个长度才会压缩
+    public static final int COMPRESS_THRESHOLD = 4096;
+    // 6. 消息体超过这个长度会拆分成多个分片发送: 注: 分片大小加上协议头长度不能超过数据包最大长度
+    public static final int CHUNK_SIZE = 512 * 1024;
+    // 7. 分片重组之后的消息体最大长度
+    public static final int MAX_MESSAGE_LENGTH = 64 * 1024 * 1024;
+    // 8. 分片标记: 当前数据包是分片
+    public static final byte FLAG_CHUNK = 0x01;
+    // 9. 分片标记: 当前数据包是最后一个分片
+    public static final byte FLAG_LAST = 0x02;
 }
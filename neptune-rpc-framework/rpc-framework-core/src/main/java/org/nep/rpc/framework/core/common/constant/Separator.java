@@ -8,6 +8,7 @@ public class Separator {
     public static final String SEMICOLON = ";";
     public static final String SLASH = "/";
     public static final String COLON = ":";
+    public static final String COMMA = ",";
 
     public static final String BLANK = " ";
     public static final String LINKER = "-";
@@ -15,5 +15,9 @@ public class ServerConfig
     public static final int RECEIVE_BUFFER_SIZE = 16 * 1024;
     // 阻塞队列大小
     public static final int BACK_LOG_SIZE = 1024;
+    // 业务线程池线程数量
+    public static final int DISPATCH_THREAD_COUNT = 200;
+    // 业务线程池队列长度
+    public static final int DISPATCH_QUEUE_SIZE = 1024;
 
 }
@@ -1,17 +1,21 @@
 package org.nep.rpc.framework.core.common.resource;
 
 import cn.hutool.core.util.StrUtil;
+import com.google.protobuf.Message;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.nep.rpc.framework.core.common.config.NeptuneRpcClientConfig;
 import org.nep.rpc.framework.core.common.config.NeptuneRpcRegisterConfig;
 import org.nep.rpc.framework.core.common.config.NeptuneRpcServerConfig;
 import org.nep.rpc.framework.core.common.constant.Separator;
+import org.nep.rpc.framework.core.compress.NeptuneCompressorType;
 import org.nep.rpc.framework.core.proxy.ProxyFactory;
 import org.nep.rpc.framework.core.proxy.javassist.JavassistProxyFactory;
 import org.nep.rpc.framework.core.proxy.jdk.JdkDynamicProxyFactory;
 import org.nep.rpc.framework.core.router.INeptuneRpcLoadBalance;
+import org.nep.rpc.framework.core.router.active.NeptuneLeastActiveLoadBalance;
 import org.nep.rpc.framework.core.router.hash.NeptuneConsistentHashLoadBalance;
+import org.nep.rpc.framework.core.router.latency.NeptunePeakEwmaLoadBalance;
 import org.nep.rpc.framework.core.router.random.NeptuneSimpleRandomLoadBalance;
 import org.nep.rpc.framework.core.router.random.NeptuneWeightRandomLoadBalance;
 import org.nep.rpc.framework.core.router.round.NeptuneSimpleRoundRobinLoadBalance;
@@ -20,6 +24,8 @@ import org.nep.rpc.framework.core.router.round.NeptuneWeightRoundRobinLoadBalanc
 import org.nep.rpc.framework.core.serialize.*;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 
@@ -32,6 +38,11 @@ public class PropertyBootStrap {
     private static final String ADDRESS = "127.0.0.1";
     //========================================== 序列化协议 ==========================================
     private static final String SERIALIZE_TYPE = "neptune.serialize.type";
+    private static final String KRYO_REGISTRATIONS = "neptune.serialize.kryo.registrations";
+    private static final String KRYO_REGISTRATION_REQUIRED = "neptune.serialize.kryo.required";
+    private static final String KRYO_POOL_SIZE = "neptune.serialize.kryo.pool.size";
+    private static final String PROTOBUF_MESSAGES = "neptune.serialize.protobuf.messages";
+    private static final String SERIALIZE_ACCEPT = "neptune.serialize.accept";
 
     //========================================== 注册中心配置 ==========================================
     private static final String REGISTER_ADDRESS = "neptune.register.address";
@@ -42,10 +53,27 @@ public class PropertyBootStrap {
     //========================================== 客户端配置 ==========================================
     private static final String PROXY_TYPE = "neptune.client.proxy.type";
     private static final String BALANCE_POLICY = "neptune.client.balance.policy";
+    private static final String WINDOW_SIZE = "neptune.client.window.size";
+    private static final String CALL_TIMEOUT = "neptune.client.call.timeout";
+    private static final String CONNECTION_SIZE = "neptune.client.connection.size";
+    private static final String COMPACT_INVOCATION = "neptune.client.invocation.compact";
+    private static final String CLIENT_COMPRESS_TYPE = "neptune.client.compress.type";
+    private static final String CLIENT_COMPRESS_THRESHOLD = "neptune.client.compress.threshold";
+    private static final String CLIENT_MAX_FRAME_LENGTH = "neptune.client.frame.max";
+    private static final String CLIENT_CHUNK_SIZE = "neptune.client.chunk.size";
+    private static final String CLIENT_MAX_MESSAGE_LENGTH = "neptune.client.message.max";
 
 
     //========================================== 服务端配置 ==========================================
     private static final String SERVER_PORT = "neptune.server.port";
+    private static final String DISPATCH_TYPE = "neptune.server.dispatch.type";
+    private static final String DISPATCH_THREADS = "neptune.server.dispatch.threads";
+    private static final String DISPATCH_QUEUES = "neptune.server.dispatch.queues";
+    private static final String SERVER_COMPRESS_TYPE = "neptune.server.compress.type";
+    private static final String SERVER_COMPRESS_THRESHOLD = "neptune.server.compress.threshold";
+    private static final String SERVER_MAX_FRAME_LENGTH = "neptune.server.frame.max";
+    private static final String SERVER_CHUNK_SIZE = "neptune.server.chunk.size";
+    private static final String SERVER_MAX_MESSAGE_LENGTH = "neptune.server.message.max";
 
     @Getter
     private static NeptuneRpcServerConfig serverConfig;
@@ -81,8 +109,29 @@ public class PropertyBootStrap {
             log.info("[neptune rpc configuration] server configuration loading register");
 
             // 5. 获取配置序列化算法
-            serverConfig.setSerializer(loadNeptuneRpcSerializer());
+            serverConfig.setSerializer(NeptuneSerializerRegistry.register(loadNeptuneRpcSerializer()));
+            loadNeptuneAcceptedSerializers();
             log.info("[neptune rpc configuration] server configuration loading serializer");
+
+            // 6. 获取配置的业务线程池
+            serverConfig.setDispatchType(PropertiesLoader.getStringValue(DISPATCH_TYPE));
+            serverConfig.setDispatchThreads(PropertiesLoader.getIntegerValue(DISPATCH_THREADS));
+            serverConfig.setDispatchQueues(PropertiesLoader.getIntegerValue(DISPATCH_QUEUES));
+            log.info("[neptune rpc configuration] server configuration loading dispatcher type: {}, threads: {}, queues: {}",
+                    serverConfig.getDispatchType(), serverConfig.getDispatchThreads(), serverConfig.getDispatchQueues());
+
+            // 7. 获取配置的压缩算法以及数据包最大长度
+            serverConfig.setCompressor(loadNeptuneCompressor(SERVER_COMPRESS_TYPE));
+            serverConfig.setCompressThreshold(PropertiesLoader.getIntegerValue(SERVER_COMPRESS_THRESHOLD));
+            serverConfig.setMaxFrameLength(PropertiesLoader.getIntegerValue(SERVER_MAX_FRAME_LENGTH));
+            log.info("[neptune rpc configuration] server configuration loading compressor: {}, threshold: {}, max frame length: {}",
+                    serverConfig.getCompressor(), serverConfig.getCompressThreshold(), serverConfig.getMaxFrameLength());
+
+            // 8. 获取配置的分片大小以及重组之后的消息体最大长度
+            serverConfig.setChunkSize(PropertiesLoader.getIntegerValue(SERVER_CHUNK_SIZE));
+            serverConfig.setMaxMessageLength(PropertiesLoader.getIntegerValue(SERVER_MAX_MESSAGE_LENGTH));
+            log.info("[neptune rpc configuration] server configuration loading chunk size: {}, max message length: {}",
+                    serverConfig.getChunkSize(), serverConfig.getMaxMessageLength());
         } catch (Exception e) {
             throw new RuntimeException("[neptune rpc configuration]: server configuration loading occurred error", e);
         }
@@ -113,7 +162,8 @@ public class PropertyBootStrap {
             clientConfig.setProxyFactory(loadNeptuneProxyFactory());
             log.info("[neptune rpc configuration] client configuration loading proxy: {}", clientConfig.getProxyFactory());
 
-            clientConfig.setSerializer(loadNeptuneRpcSerializer());
+            clientConfig.setSerializer(NeptuneSerializerRegistry.register(loadNeptuneRpcSerializer()));
+            loadNeptuneAcceptedSerializers();
             log.info("[neptune rpc configuration] client configuration loading serializer: {}", clientConfig.getSerializer());
 
             clientConfig.setRegisterConfig(loadNeptuneRpcRegisterConfiguration());
@@ -122,6 +172,29 @@ public class PropertyBootStrap {
             clientConfig.setLoadBalanceStrategy(loadNeptuneRpcLoadBalance());
             log.info("[neptune rpc configuration] client configuration loading load balance: {}", clientConfig.getLoadBalanceStrategy());
 
+            clientConfig.setWindowSize(PropertiesLoader.getIntegerValue(WINDOW_SIZE));
+            log.info("[neptune rpc configuration] client configuration loading window size: {}", clientConfig.getWindowSize());
+
+            clientConfig.setCallTimeout(PropertiesLoader.getIntegerValue(CALL_TIMEOUT));
+            log.info("[neptune rpc configuration] client configuration loading call timeout: {}", clientConfig.getCallTimeout());
+
+            clientConfig.setConnectionSize(PropertiesLoader.getIntegerValue(CONNECTION_SIZE));
+            log.info("[neptune rpc configuration] client configuration loading connection size: {}", clientConfig.getConnectionSize());
+
+            clientConfig.setCompactInvocation(Boolean.valueOf(PropertiesLoader.getStringValue(COMPACT_INVOCATION)));
+            log.info("[neptune rpc configuration] client configuration loading compact invocation: {}", clientConfig.getCompactInvocation());
+
+            clientConfig.setCompressor(loadNeptuneCompressor(CLIENT_COMPRESS_TYPE));
+            clientConfig.setCompressThreshold(PropertiesLoader.getIntegerValue(CLIENT_COMPRESS_THRESHOLD));
+            clientConfig.setMaxFrameLength(PropertiesLoader.getIntegerValue(CLIENT_MAX_FRAME_LENGTH));
+            log.info("[neptune rpc configuration] client configuration loading compressor: {}, threshold: {}, max frame length: {}",
+                    clientConfig.getCompressor(), clientConfig.getCompressThreshold(), clientConfig.getMaxFrameLength());
+
+            clientConfig.setChunkSize(PropertiesLoader.getIntegerValue(CLIENT_CHUNK_SIZE));
+            clientConfig.setMaxMessageLength(PropertiesLoader.getIntegerValue(CLIENT_MAX_MESSAGE_LENGTH));
+            log.info("[neptune rpc configuration] client configuration loading chunk size: {}, max message length: {}",
+                    clientConfig.getChunkSize(), clientConfig.getMaxMessageLength());
+
         } catch (Exception e) {
             throw new RuntimeException("[neptune rpc configuration]: client configuration loading occurred error", e);
         }
@@ -171,6 +244,19 @@ public class PropertyBootStrap {
         return config;
     }
 
+    /**
+     * <h3>加载压缩算法: 如果没有配置, 那么不压缩</h3>
+     */
+    private static NeptuneCompressorType loadNeptuneCompressor(String key){
+        String compressorName = PropertiesLoader.getStringValue(key);
+        if (StrUtil.isBlank(compressorName))
+            return NeptuneCompressorType.COMPRESSOR_NONE;
+        NeptuneCompressorType compressor = NeptuneCompressorType.getType(compressorName.trim());
+        if (Objects.isNull(compressor))
+            throw new RuntimeException("[neptune rpc configuration]: compressor type doesn't support - " + compressorName);
+        return compressor;
+    }
+
     /**
      * <h3>加载序列化策略</h3>
      */
@@ -183,6 +269,33 @@ public class PropertyBootStrap {
         }
         log.info("[neptune rpc configuration] load configuration serializer name is - {}", serializeName);
         // 3. 根据序列化算法名选择序列化算法
+        return loadNeptuneRpcSerializer(serializeName);
+    }
+
+    /**
+     * <h3>加载除了采用的序列化算法之外还接收的序列化算法: 默认不接收其他序列化算法</h3>
+     */
+    private static void loadNeptuneAcceptedSerializers() {
+        String serializeNames = PropertiesLoader.getStringValue(SERIALIZE_ACCEPT);
+        if (StrUtil.isEmpty(serializeNames)) {
+            return;
+        }
+        String serializeName = PropertiesLoader.getStringValue(SERIALIZE_TYPE);
+        for (String acceptName : serializeNames.split(Separator.COMMA)) {
+            acceptName = acceptName.trim();
+            // 注: 采用的序列化算法已经注册, 不能用新的实例覆盖
+            if (StrUtil.isEmpty(acceptName) || acceptName.equals(serializeName)) {
+                continue;
+            }
+            log.info("[neptune rpc configuration] load configuration accept serializer - {}", acceptName);
+            NeptuneSerializerRegistry.register(loadNeptuneRpcSerializer(acceptName));
+        }
+    }
+
+    /**
+     * <h3>根据序列化算法名称创建序列化算法</h3>
+     */
+    private static INeptuneSerializer loadNeptuneRpcSerializer(String serializeName) {
         switch (serializeName) {
             case INeptuneSerializer.gson:
                 return new NeptuneGsonSerializer();
@@ -191,14 +304,68 @@ public class PropertyBootStrap {
             case INeptuneSerializer.jackson:
                 return new NeptuneJackSonSerializer();
             case INeptuneSerializer.kryo:
-                return new NeptuneKryoSerializer();
+                return loadNeptuneKryoSerializer();
             case INeptuneSerializer.jdk:
                 return new NeptuneJdkSerializer();
+            case INeptuneSerializer.protobuf:
+                return loadNeptuneProtobufSerializer();
             default:
                 throw new RuntimeException("[neptune rpc configuration]: serializer type doesn't not supported");
         }
     }
 
+    /**
+     * <h3>加载 Kryo 序列化: 预先注册配置的类</h3>
+     */
+    private static INeptuneSerializer loadNeptuneKryoSerializer() {
+        // 1. 获取预先注册的类
+        List<Class<?>> registrations = loadClasses(KRYO_REGISTRATIONS);
+        // 2. 获取是否只允许序列化注册过的类
+        boolean registrationRequired = Boolean.parseBoolean(PropertiesLoader.getStringValue(KRYO_REGISTRATION_REQUIRED));
+        // 3. 获取池容量
+        Integer poolSize = PropertiesLoader.getIntegerValue(KRYO_POOL_SIZE);
+        if (Objects.isNull(poolSize))
+            poolSize = NeptuneKryoSerializer.DEFAULT_POOL_SIZE;
+        log.info("[neptune rpc configuration] load configuration kryo registrations: {}, required: {}, pool size: {}",
+                registrations, registrationRequired, poolSize);
+        return new NeptuneKryoSerializer(registrations, registrationRequired, poolSize);
+    }
+
+    /**
+     * <h3>加载 Protobuf 序列化: 记录配置的消息类</h3>
+     */
+    @SuppressWarnings("unchecked")
+    private static INeptuneSerializer loadNeptuneProtobufSerializer() {
+        List<Class<? extends Message>> messages = new ArrayList<>();
+        for (Class<?> clazz : loadClasses(PROTOBUF_MESSAGES)) {
+            if (!Message.class.isAssignableFrom(clazz))
+                throw new RuntimeException("[neptune rpc configuration]: protobuf message class is illegal - " + clazz.getName());
+            messages.add((Class<? extends Message>) clazz);
+        }
+        log.info("[neptune rpc configuration] load configuration protobuf messages: {}", messages);
+        return new NeptuneProtobufSerializer(messages);
+    }
+
+    /**
+     * <h3>加载配置的类: 多个类之间采用逗号分隔</h3>
+     */
+    private static List<Class<?>> loadClasses(String key){
+        List<Class<?>> classes = new ArrayList<>();
+        String classNames = PropertiesLoader.getStringValue(key);
+        if (StrUtil.isBlank(classNames))
+            return classes;
+        for (String className : classNames.split(Separator.COMMA)) {
+            if (StrUtil.isBlank(className))
+                continue;
+            try {
+                classes.add(Class.forName(className.trim()));
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("[neptune rpc configuration]: configuration class doesn't exist - " + className, e);
+            }
+        }
+        return classes;
+    }
+
     /**
      * <h3>加载路由策略</h3>
      */
@@ -216,13 +383,17 @@ public class PropertyBootStrap {
                 case INeptuneRpcLoadBalance.randomSimple:
                     return new NeptuneSimpleRandomLoadBalance();
                 case INeptuneRpcLoadBalance.randomWeight:
-                    return new NeptuneSimpleRoundRobinLoadBalance();
-                case INeptuneRpcLoadBalance.robinSimple:
                     return new NeptuneWeightRandomLoadBalance();
+                case INeptuneRpcLoadBalance.robinSimple:
+                    return new NeptuneSimpleRoundRobinLoadBalance();
                 case INeptuneRpcLoadBalance.robinWeight:
                     return new NeptuneWeightRoundRobinLoadBalance();
                 case INeptuneRpcLoadBalance.robinSmooth:
                     return new NeptuneSmoothRoundRobinLoadBalance();
+                case INeptuneRpcLoadBalance.leastActive:
+                    return new NeptuneLeastActiveLoadBalance();
+                case INeptuneRpcLoadBalance.peakEwma:
+                    return new NeptunePeakEwmaLoadBalance();
                 default:
                     throw new RuntimeException("[neptune rpc configuration] load balance type doesn't support");
             }
@@ -1,9 +1,11 @@
 package org.nep.rpc.framework.core.common.util;
 
 import lombok.extern.slf4j.Slf4j;
+import org.nep.rpc.framework.core.common.constant.Separator;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.HashMap;
@@ -44,4 +46,28 @@ public class NeptuneUtil {
         return PRIMITIVE_MAP.get(wrapper);
     }
 
+    /**
+     * <h3>生成方法签名: 方法名(参数类型, ...)</h3>
+     */
+    public static String getMethodSignature(Method method){
+        StringBuilder builder = new StringBuilder(method.getName()).append('(');
+        Class<?>[] types = method.getParameterTypes();
+        for (int index = 0; index < types.length; index++) {
+            if (index > 0){
+                builder.append(',');
+            }
+            builder.append(types[index].getName());
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * <h3>生成方法编号: 客户端和服务端根据接口名和方法签名各自计算, 不需要额外交换方法表</h3>
+     * <h3>注: 0 表示没有方法编号</h3>
+     */
+    public static int getMethodId(String serviceName, Method method){
+        int id = (serviceName + Separator.WELL + getMethodSignature(method)).hashCode();
+        return id == 0 ? 1 : id;
+    }
+
 }
@@ -0,0 +1,23 @@
+package org.nep.rpc.framework.core.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * <h3>消息体压缩算法</h3>
+ * <h3>注: 压缩和解压都不会释放传入的缓冲区, 返回的缓冲区由调用方释放</h3>
+ * <h3>注: 解压后的长度超过上限时抛出 TooLongFrameException, 避免很小的压缩数据解压出巨大的消息体</h3>
+ */
+public interface INeptuneCompressor {
+
+    String none = "none";
+
+    String deflate = "deflate";
+
+    String snappy = "snappy";
+
+    ByteBuf compress(ByteBuf source, ByteBufAllocator allocator) throws Exception;
+
+    ByteBuf decompress(ByteBuf source, ByteBufAllocator allocator, int maxLength) throws Exception;
+
+}
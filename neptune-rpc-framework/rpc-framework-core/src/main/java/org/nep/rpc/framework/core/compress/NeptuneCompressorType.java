@@ -0,0 +1,65 @@
+package org.nep.rpc.framework.core.compress;
+
+/**
+ * <h3>压缩算法类型: 编号会写入协议头, 接收方根据编号解压</h3>
+ */
+public enum NeptuneCompressorType {
+
+    COMPRESSOR_NONE(0, INeptuneCompressor.none, null),
+    COMPRESSOR_DEFLATE(1, INeptuneCompressor.deflate, new NeptuneDeflateCompressor()),
+    COMPRESSOR_SNAPPY(2, INeptuneCompressor.snappy, new NeptuneSnappyCompressor());
+
+    /**
+     * <h3>压缩算法编号</h3>
+     */
+    private final byte code;
+    /**
+     * <h3>压缩算法名称</h3>
+     */
+    private final String name;
+    /**
+     * <h3>压缩算法: 压缩算法都是无状态的, 所以直接共享</h3>
+     */
+    private final INeptuneCompressor compressor;
+
+    NeptuneCompressorType(int code, String name, INeptuneCompressor compressor) {
+        this.code = (byte) code;
+        this.name = name;
+        this.compressor = compressor;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public INeptuneCompressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * <h3>根据编号获取压缩算法类型: 如果不存在, 那么返回 null</h3>
+     */
+    public static NeptuneCompressorType getType(byte code){
+        for (NeptuneCompressorType type : values()) {
+            if (type.code == code)
+                return type;
+        }
+        return null;
+    }
+
+    /**
+     * <h3>根据名称获取压缩算法类型: 如果不存在, 那么返回 null</h3>
+     */
+    public static NeptuneCompressorType getType(String name){
+        for (NeptuneCompressorType type : values()) {
+            if (type.name.equalsIgnoreCase(name))
+                return type;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.nep.rpc.framework.core.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <h3>Deflate 压缩: 压缩率高, 适合跨机房等带宽紧张的链路</h3>
+ */
+public class NeptuneDeflateCompressor implements INeptuneCompressor {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    @Override
+    public ByteBuf compress(ByteBuf source, ByteBufAllocator allocator) throws Exception {
+        ByteBuf target = allocator.ioBuffer(source.readableBytes());
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream output = new DeflaterOutputStream(new ByteBufOutputStream(target), deflater, BUFFER_SIZE)){
+            source.getBytes(source.readerIndex(), output, source.readableBytes());
+        } catch (Exception e) {
+            target.release();
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        return target;
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf source, ByteBufAllocator allocator, int maxLength) throws Exception {
+        ByteBuf target = allocator.ioBuffer((int) Math.min((long) source.readableBytes() * 2, maxLength));
+        Inflater inflater = new Inflater();
+        try (InputStream input = new InflaterInputStream(new ByteBufInputStream(source.duplicate()), inflater, BUFFER_SIZE)){
+            // 注: 写入缓冲区时会自动扩容, 读到流的末尾时返回 -1
+            // 注: 最多读取到超过上限的第一个字节, 不会把整个解压结果读到内存中
+            int length;
+            do {
+                length = target.writeBytes(input, BUFFER_SIZE);
+                if (target.readableBytes() > maxLength){
+                    throw new TooLongFrameException("[neptune rpc deflate compressor]: decompressed length exceeds " + maxLength);
+                }
+            } while (length != -1);
+        } catch (Exception e) {
+            target.release();
+            throw e;
+        } finally {
+            inflater.end();
+        }
+        return target;
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.nep.rpc.framework.core.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.handler.codec.compression.Snappy;
+
+/**
+ * <h3>Snappy 压缩: 压缩率不如 Deflate, 但是速度快得多, 适合大部分内网调用</h3>
+ * <h3>注: 直接使用 Netty 自带的 Snappy 实现, 不需要额外的依赖</h3>
+ * <h3>1. Netty 的 Snappy 哈希表只能记录 32767 以内的偏移量, 所以消息体按照 32767 字节分块压缩</h3>
+ * <h3>2. 压缩后的格式: 原始长度 4B + 多个 (块压缩后的长度 4B + Snappy 块), 每个 Snappy 块以原始长度的变长整数开头</h3>
+ */
+public class NeptuneSnappyCompressor implements INeptuneCompressor {
+
+    /**
+     * <h3>每个块的最大原始长度</h3>
+     */
+    private static final int BLOCK_SIZE = Short.MAX_VALUE;
+
+    /**
+     * <h3>每个块压缩后的最大长度: 和 Snappy 的最坏情况相同, 超过这个长度的块一定是伪造的</h3>
+     */
+    private static final int MAX_BLOCK_LENGTH = 32 + BLOCK_SIZE + BLOCK_SIZE / 6;
+
+    /**
+     * <h3>变长整数的最大字节数</h3>
+     */
+    private static final int MAX_PREAMBLE_BYTES = 5;
+
+    @Override
+    public ByteBuf compress(ByteBuf source, ByteBufAllocator allocator) throws Exception {
+        int length = source.readableBytes();
+        ByteBuf target = allocator.ioBuffer(length);
+        try {
+            // 注: Snappy 对象会保存编解码状态, 所以每次都创建新的对象
+            Snappy snappy = new Snappy();
+            target.writeInt(length);
+            for (int offset = 0; offset < length; offset += BLOCK_SIZE) {
+                int blockLength = Math.min(BLOCK_SIZE, length - offset);
+                // 1. 预留块压缩后的长度
+                int lengthIndex = target.writerIndex();
+                target.writeInt(0);
+                // 2. 压缩当前块
+                snappy.encode(source.slice(source.readerIndex() + offset, blockLength), target, blockLength);
+                snappy.reset();
+                // 3. 回填块压缩后的长度
+                target.setInt(lengthIndex, target.writerIndex() - lengthIndex - Integer.BYTES);
+            }
+            return target;
+        } catch (Exception e) {
+            target.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf source, ByteBufAllocator allocator, int maxLength) throws Exception {
+        ByteBuf input = source.duplicate();
+        // 1. 检查原始长度: 解压之前就拒绝过长的消息体
+        int length = input.readInt();
+        if (length < 0 || length > maxLength){
+            throw new TooLongFrameException("[neptune rpc snappy compressor]: decompressed length exceeds " + maxLength);
+        }
+        ByteBuf target = allocator.ioBuffer(length);
+        try {
+            Snappy snappy = new Snappy();
+            while (input.isReadable()) {
+                // 2. 检查块压缩后的长度以及块的原始长度
+                int blockLength = input.readInt();
+                if (blockLength <= 0 || blockLength > MAX_BLOCK_LENGTH || blockLength > input.readableBytes()){
+                    throw new DecompressionException("[neptune rpc snappy compressor]: illegal block length - " + blockLength);
+                }
+                ByteBuf block = input.readSlice(blockLength);
+                int preamble = preamble(block);
+                if (preamble <= 0 || preamble > BLOCK_SIZE || target.readableBytes() + preamble > length){
+                    throw new DecompressionException("[neptune rpc snappy compressor]: illegal block preamble - " + preamble);
+                }
+                // 3. 解压当前块: 解压后的长度必须和块的原始长度相同
+                int writerIndex = target.writerIndex();
+                snappy.decode(block, target);
+                snappy.reset();
+                if (target.writerIndex() - writerIndex != preamble){
+                    throw new DecompressionException("[neptune rpc snappy compressor]: block length doesn't match preamble");
+                }
+            }
+            if (target.readableBytes() != length){
+                throw new DecompressionException("[neptune rpc snappy compressor]: decompressed length doesn't match");
+            }
+            return target;
+        } catch (Exception e) {
+            target.release();
+            throw e;
+        }
+    }
+
+    /**
+     * <h3>读取 Snappy 块开头的原始长度: 不移动读指针, 如果格式错误, 那么返回 -1</h3>
+     */
+    private static int preamble(ByteBuf block){
+        int value = 0;
+        for (int index = 0; index < MAX_PREAMBLE_BYTES && index < block.readableBytes(); index++) {
+            int current = block.getUnsignedByte(block.readerIndex() + index);
+            value |= (current & 0x7f) << (7 * index);
+            if ((current & 0x80) == 0){
+                return value;
+            }
+        }
+        return -1;
+    }
+
+}
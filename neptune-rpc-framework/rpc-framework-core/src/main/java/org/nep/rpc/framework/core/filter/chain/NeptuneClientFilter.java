@@ -1,10 +1,12 @@
 package org.nep.rpc.framework.core.filter.chain;
 
-import org.nep.rpc.framework.core.client.NeptuneRpcInvoker;
+import org.nep.rpc.framework.core.client.NeptuneRpcInvokerSnapshot;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
 
-import java.util.List;
-
+/**
+ * <h3>客户端过滤链</h3>
+ * <h3>注: 传入的服务端快照是共享的, 过滤器只能返回快照中预先划分好的子快照交给下一个过滤器</h3>
+ */
 public abstract class NeptuneClientFilter
 {
 
@@ -15,11 +17,10 @@ public abstract class NeptuneClientFilter
         return this;
     }
 
-    public void execute(List<NeptuneRpcInvoker> invokers, NeptuneRpcInvocation invocation){
-        if (nextFilter != null){
-            nextFilter.filter(invokers, invocation);
-        }
+    public NeptuneRpcInvokerSnapshot execute(NeptuneRpcInvokerSnapshot snapshot, NeptuneRpcInvocation invocation){
+        NeptuneRpcInvokerSnapshot filtered = filter(snapshot, invocation);
+        return nextFilter != null ? nextFilter.execute(filtered, invocation) : filtered;
     }
 
-    protected abstract void filter(List<NeptuneRpcInvoker> invokers, NeptuneRpcInvocation invocation);
+    protected abstract NeptuneRpcInvokerSnapshot filter(NeptuneRpcInvokerSnapshot snapshot, NeptuneRpcInvocation invocation);
 }
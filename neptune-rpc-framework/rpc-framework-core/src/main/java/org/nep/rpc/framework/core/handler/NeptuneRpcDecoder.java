@@ -1,36 +1,136 @@
 package org.nep.rpc.framework.core.handler;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
 import lombok.extern.slf4j.Slf4j;
 import org.nep.rpc.framework.core.common.constant.Protocol;
+import org.nep.rpc.framework.core.compress.NeptuneCompressorType;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcProtocol;
 
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
  * <h3>Neptune RPC 解码器</h3>
  * <h3>1. 按照写入缓冲区的顺序从缓冲区中读取出来</h3>
- * TODO <h3>2. 如果魔数字段或者版本字段之类的不合理, 那么应该要进行处理</h3>
+ * <h3>2. 定长解码器已经切分出完整的数据包, 所以不需要再累积缓冲区</h3>
+ * <h3>3. 消息体直接引用数据包的切片, 不再复制</h3>
+ * <h3>4. 分片按照请求序列号重组到组合缓冲区中, 收到最后一个分片之后才交给处理器; 不同请求的分片可以交错</h3>
  */
 @Slf4j
-public class NeptuneRpcDecoder extends ByteToMessageDecoder {
+public class NeptuneRpcDecoder extends MessageToMessageDecoder<ByteBuf> {
+
+    /**
+     * <h3>重组之后的消息体最大长度</h3>
+     */
+    private final int maxMessageLength;
+
+    /**
+     * <h3>请求序列号 => 正在重组的消息体: 注: 解码器不是共享的, 只会在连接的 I/O 线程上访问</h3>
+     */
+    private final LongObjectMap<CompositeByteBuf> chunks = new LongObjectHashMap<>();
+
+    public NeptuneRpcDecoder() {
+        this(Protocol.MAX_MESSAGE_LENGTH);
+    }
+
+    public NeptuneRpcDecoder(int maxMessageLength) {
+        this.maxMessageLength = maxMessageLength;
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf buf, List<Object> out) throws Exception {
-        // 1. 读取魔数字段 7B
-        String magicNumber = buf.readBytes(Protocol.MAGIC_NUMBER.length()).toString(StandardCharsets.UTF_8);
+        // 1. 读取魔数字段 7B: 如果魔数不正确, 那么直接断开连接
+        for (byte magic : Protocol.MAGIC_BYTES) {
+            if (buf.readByte() != magic){
+                log.error("[neptune rpc decoder]: decoder receive illegal magic number from {}", ctx.channel().remoteAddress());
+                throw new CorruptedFrameException("[neptune rpc decoder]: illegal magic number");
+            }
+        }
         // 2. 读取协议版本号 1B
         byte protocolVersion = buf.readByte();
         // 3. 读取采用的序列化算法类型 1B
         byte serializer = buf.readByte();
-        // 4. 读取消息体的长度字段 4B
+        // 注: 读取采用的压缩算法类型 1B
+        NeptuneCompressorType compressor = NeptuneCompressorType.getType(buf.readByte());
+        if (compressor == null){
+            log.error("[neptune rpc decoder]: decoder receive illegal compressor from {}", ctx.channel().remoteAddress());
+            throw new CorruptedFrameException("[neptune rpc decoder]: illegal compressor");
+        }
+        // 注: 读取分片标记 1B
+        byte flags = buf.readByte();
+        // 4. 读取请求序列号 8B
+        long requestId = buf.readLong();
+        // 注: 读取分片序号 4B
+        int sequence = buf.readInt();
+        // 5. 读取消息体的长度字段 4B
         int contentLength = buf.readInt();
-        // 5. 读取正文消息体
-        byte[] content = new byte[contentLength];
-        buf.readBytes(content, 0, contentLength);
-        // 6. 将从缓冲区中接收到的数据填充到协议中, 然后交给服务器处理器进行处理; 不在这里进行反序列化
-        out.add(new NeptuneRpcProtocol(protocolVersion, serializer, content));
+        // 6. 读取正文消息体: 增加引用计数的切片, 由处理器反序列化之后释放
+        ByteBuf content = buf.readRetainedSlice(contentLength);
+        // 注: 如果是分片, 那么等到最后一个分片到达之后再继续处理
+        if ((flags & Protocol.FLAG_CHUNK) != 0){
+            content = aggregate(ctx, requestId, sequence, (flags & Protocol.FLAG_LAST) != 0, content);
+            if (content == null)
+                return;
+        }
+        // 注: 如果消息体被压缩, 那么解压到新的缓冲区, 然后释放压缩的消息体; 解压后的长度同样不能超过上限
+        if (compressor.getCompressor() != null){
+            ByteBuf compressed = content;
+            try {
+                content = compressor.getCompressor().decompress(compressed, ctx.alloc(), maxMessageLength);
+            } finally {
+                compressed.release();
+            }
+        }
+        // 7. 将从缓冲区中接收到的数据填充到协议中, 然后交给服务器处理器进行处理; 不在这里进行反序列化
+        out.add(new NeptuneRpcProtocol(protocolVersion, serializer, requestId, content));
+    }
+
+    /**
+     * <h3>重组分片: 如果还没有收到最后一个分片, 那么返回 null</h3>
+     */
+    private ByteBuf aggregate(ChannelHandlerContext ctx, long requestId, int sequence, boolean last, ByteBuf content){
+        CompositeByteBuf message = chunks.get(requestId);
+        // 1. 首个分片: 创建组合缓冲区
+        if (message == null){
+            if (sequence != 0){
+                content.release();
+                throw new CorruptedFrameException("[neptune rpc decoder]: chunk doesn't start with first sequence - " + requestId);
+            }
+            message = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+            chunks.put(requestId, message);
+        }
+        // 2. 检查分片序号以及重组之后的长度: 注: 每个分片都是一个组件, 所以组件数量就是下一个分片序号
+        if (sequence != message.numComponents()){
+            content.release();
+            chunks.remove(requestId).release();
+            throw new CorruptedFrameException("[neptune rpc decoder]: chunk sequence is out of order - " + requestId);
+        }
+        if ((long) message.readableBytes() + content.readableBytes() > maxMessageLength){
+            content.release();
+            chunks.remove(requestId).release();
+            throw new TooLongFrameException("[neptune rpc decoder]: message length exceeds " + maxMessageLength);
+        }
+        // 3. 添加分片: 组合缓冲区负责释放分片
+        message.addComponent(true, content);
+        if (!last)
+            return null;
+        chunks.remove(requestId);
+        return message;
+    }
+
+    /**
+     * <h3>连接断开时释放还没有重组完成的消息体</h3>
+     */
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        chunks.values().forEach(CompositeByteBuf::release);
+        chunks.clear();
+        super.channelInactive(ctx);
     }
 }
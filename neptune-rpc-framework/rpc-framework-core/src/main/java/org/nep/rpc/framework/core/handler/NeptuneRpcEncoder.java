@@ -1,30 +1,126 @@
 package org.nep.rpc.framework.core.handler;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
-import io.netty.util.internal.StringUtil;
+import io.netty.handler.codec.MessageToMessageEncoder;
 import lombok.extern.slf4j.Slf4j;
+import org.nep.rpc.framework.core.common.constant.Protocol;
+import org.nep.rpc.framework.core.compress.NeptuneCompressorType;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcProtocol;
 
-import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * <h3>Neptune RPC 编码器</h3>
- * <h3>1. MessageToByteEncoder: 将消息体转换为字节数据</h3>
+ * <h3>1. MessageToMessageEncoder: 将消息体转换为字节数据</h3>
  * <h3>2. NeptuneRpcProtocol: 编码器接收到这个消息体之后就会将其转换为字节数据</h3>
+ * <h3>3. 只有协议头需要写入新的缓冲区, 较大的消息体直接和协议头组合, 不再复制</h3>
+ * <h3>4. 消息体超过压缩阈值时才会压缩, 如果压缩后没有变小, 那么依然发送原始的消息体</h3>
+ * <h3>5. 消息体超过分片大小时拆分成多个分片, 每个分片都是消息体的切片, 接收方按照分片序号重组</h3>
  */
 @Slf4j
-public class NeptuneRpcEncoder extends MessageToByteEncoder<NeptuneRpcProtocol> {
+public class NeptuneRpcEncoder extends MessageToMessageEncoder<NeptuneRpcProtocol> {
+
+    /**
+     * <h3>消息体小于这个长度时直接复制到协议头后面, 组合缓冲区的开销反而更大</h3>
+     */
+    private static final int COPY_THRESHOLD = 256;
+
+    /**
+     * <h3>压缩算法</h3>
+     */
+    private final NeptuneCompressorType compressor;
+
+    /**
+     * <h3>压缩阈值</h3>
+     */
+    private final int compressThreshold;
+
+    /**
+     * <h3>分片大小</h3>
+     */
+    private final int chunkSize;
+
+    public NeptuneRpcEncoder() {
+        this(NeptuneCompressorType.COMPRESSOR_NONE, Protocol.COMPRESS_THRESHOLD, Protocol.CHUNK_SIZE);
+    }
+
+    public NeptuneRpcEncoder(NeptuneCompressorType compressor, int compressThreshold, int chunkSize) {
+        this.compressor = compressor;
+        this.compressThreshold = compressThreshold;
+        this.chunkSize = chunkSize;
+    }
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, NeptuneRpcProtocol message, ByteBuf buf) throws Exception {
-        buf.writeBytes(message.getMagicNumber().getBytes(StandardCharsets.UTF_8));
-        buf.writeByte(message.getProtocolVersion());
-        buf.writeByte(message.getSerializer());
-        buf.writeInt(message.getContentLength());
-        buf.writeBytes(message.getContent());
+    protected void encode(ChannelHandlerContext ctx, NeptuneRpcProtocol message, List<Object> out) throws Exception {
+        // 注: 编码器结束后会释放消息, 所以需要持有消息体的引用
+        ByteBuf content = message.getContent().retain();
+        // 1. 压缩消息体
+        NeptuneCompressorType compressed = NeptuneCompressorType.COMPRESSOR_NONE;
+        if (compressor.getCompressor() != null && content.readableBytes() >= compressThreshold){
+            ByteBuf target;
+            try {
+                target = compressor.getCompressor().compress(content, ctx.alloc());
+            } catch (Exception e) {
+                // 注: 压缩失败时编码器不会再使用消息体, 所以需要释放持有的引用
+                content.release();
+                throw e;
+            }
+            if (target.readableBytes() < content.readableBytes()){
+                content.release();
+                content = target;
+                compressed = compressor;
+            }else{
+                target.release();
+            }
+        }
+        int contentLength = content.readableBytes();
+        // 2. 消息体超过分片大小: 拆分成多个分片
+        if (contentLength > chunkSize){
+            try {
+                int sequence = 0;
+                for (int offset = 0; offset < contentLength; offset += chunkSize, sequence++) {
+                    int length = Math.min(chunkSize, contentLength - offset);
+                    byte flags = offset + length == contentLength ? (byte) (Protocol.FLAG_CHUNK | Protocol.FLAG_LAST) : Protocol.FLAG_CHUNK;
+                    ByteBuf header = writeHeader(ctx, message, compressed, flags, sequence, length, Protocol.HEADER_LENGTH);
+                    CompositeByteBuf frame = ctx.alloc().compositeDirectBuffer(2);
+                    frame.addComponents(true, header, content.retainedSlice(content.readerIndex() + offset, length));
+                    out.add(frame);
+                }
+            } finally {
+                content.release();
+            }
+            return;
+        }
+        // 3. 写入协议头
+        boolean copy = contentLength < COPY_THRESHOLD;
+        ByteBuf header = writeHeader(ctx, message, compressed, (byte) 0, 0, contentLength,
+                copy ? Protocol.HEADER_LENGTH + contentLength : Protocol.HEADER_LENGTH);
+        // 4. 写入消息体
+        if (copy){
+            header.writeBytes(content, content.readerIndex(), contentLength);
+            content.release();
+            out.add(header);
+            return;
+        }
+        CompositeByteBuf frame = ctx.alloc().compositeDirectBuffer(2);
+        frame.addComponents(true, header, content);
+        out.add(frame);
+    }
+
+    private static ByteBuf writeHeader(ChannelHandlerContext ctx, NeptuneRpcProtocol message, NeptuneCompressorType compressed,
+                                       byte flags, int sequence, int contentLength, int capacity){
+        ByteBuf header = ctx.alloc().ioBuffer(capacity);
+        header.writeBytes(Protocol.MAGIC_BYTES);
+        header.writeByte(message.getProtocolVersion());
+        header.writeByte(message.getSerializer());
+        header.writeByte(compressed.getCode());
+        header.writeByte(flags);
+        header.writeLong(message.getRequestId());
+        header.writeInt(sequence);
+        header.writeInt(contentLength);
+        return header;
     }
 
 }
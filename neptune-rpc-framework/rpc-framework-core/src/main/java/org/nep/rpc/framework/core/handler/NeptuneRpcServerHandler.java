@@ -1,12 +1,11 @@
 package org.nep.rpc.framework.core.handler;
 
-import cn.hutool.core.util.ArrayUtil;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import lombok.extern.slf4j.Slf4j;
 import org.nep.rpc.framework.core.common.cache.NeptuneRpcServerCache;
-import org.nep.rpc.framework.core.common.resource.PropertyBootStrap;
 import org.nep.rpc.framework.core.filter.chain.NeptuneServerFilter;
 import org.nep.rpc.framework.core.filter.server.NeptuneServerLogFilter;
 import org.nep.rpc.framework.core.filter.server.NeptuneTokenFilter;
@@ -14,13 +13,15 @@ import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcProtocol;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcResponse;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcResponseCode;
-import org.nep.rpc.framework.core.serialize.INeptuneSerializer;
-import org.nep.rpc.framework.core.serialize.NeptuneSerializerType;
+import org.nep.rpc.framework.core.serialize.INeptuneStreamSerializer;
+import org.nep.rpc.framework.core.serialize.NeptuneSerializerRegistry;
+import org.nep.rpc.framework.core.server.NeptuneRpcDispatcher;
+import org.nep.rpc.framework.core.server.NeptuneRpcMethod;
 import org.nep.rpc.framework.core.server.NeptuneServiceWrapper;
 
-import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * <h3>Neptune RPC 服务器消息处理器</h3>
@@ -35,71 +36,222 @@ public class NeptuneRpcServerHandler extends ChannelInboundHandlerAdapter {
     private static final NeptuneServerFilter filter = new NeptuneServerLogFilter()
                          .setNextFilter(new NeptuneTokenFilter());
 
+    /**
+     * <h3>业务线程池已满时返回给客户端的信息</h3>
+     */
+    private static final String SERVER_BUSY = "server is busy";
 
     /**
-     * <h3>处理器读事件</h3>
+     * <h3>业务线程池</h3>
+     */
+    private final NeptuneRpcDispatcher dispatcher;
+
+    public NeptuneRpcServerHandler(NeptuneRpcDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * <h3>处理器读事件: I/O 线程仅负责把请求交给业务线程池</h3>
      */
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object message) throws Exception {
-        NeptuneRpcResponse response = new NeptuneRpcResponse();
         // 1. 从解码器中获取到的消息转换成协议的形式
         NeptuneRpcProtocol protocol =  (NeptuneRpcProtocol) message;
         log.debug("[neptune rpc server handler]: handle message - {}", protocol);
-        // 2. 获取序列化算法
-        INeptuneSerializer serializer = PropertyBootStrap.getServerConfig().getSerializer();
-        if (protocol.getSerializer() != NeptuneSerializerType.getSerializerCode(serializer)){
-            log.error("[neptune rpc server handler]: server's serializer is not same with client's serializer");
-            throw new RuntimeException("[neptune rpc server handler]: server's serializer is not same with client's serializer");
-        }
-        // 3. 取出消息中的消息体, 然后将其反序列化
-        NeptuneRpcInvocation invocation = serializer.deserialize(protocol.getContent(), NeptuneRpcInvocation.class);
+        // 2. 根据协议头中的序列化算法编号获取序列化算法: 响应也采用相同的序列化算法
+        INeptuneStreamSerializer serializer = NeptuneSerializerRegistry.getSerializer(protocol.getSerializer());
+        if (Objects.isNull(serializer)){
+            protocol.release();
+            log.error("[neptune rpc server handler]: server doesn't support client's serializer - {}", protocol.getSerializer());
+            throw new RuntimeException("[neptune rpc server handler]: server doesn't support client's serializer");
+        }
+        // 3. 如果没有服务使用独占的业务线程池, 那么反序列化也交给共享的业务线程池
+        if (!NeptuneRpcServerCache.Service.isIsolated()){
+            // 注: 如果请求被拒绝, 那么业务线程不会释放消息体
+            if (!dispatch(dispatcher, ctx, protocol, serializer, () -> handle(ctx, protocol, serializer, null))){
+                protocol.release();
+            }
+            return;
+        }
+        // 4. 否则需要先在 I/O 线程上反序列化才能知道调用的服务, 然后交给服务对应的业务线程池
+        // 注: 反序列化或者查找方法失败时只告诉客户端这个请求失败, 不能抛给 exceptionCaught 断开所有请求共用的连接
+        NeptuneRpcInvocation invocation = prepare(protocol, serializer);
+        if (Objects.isNull(invocation)){
+            writeFailure(ctx, protocol, serializer, NeptuneRpcResponseCode.FAIL.getMessage());
+            return;
+        }
+        NeptuneServiceWrapper wrapper = NeptuneRpcServerCache.Service.getService(invocation.getServiceName());
+        NeptuneRpcDispatcher target = Objects.nonNull(wrapper) && Objects.nonNull(wrapper.getDispatcher())
+                                              ? wrapper.getDispatcher() : dispatcher;
+        // 注: 消息体在反序列化时已经释放, 所以请求被拒绝时不需要再释放, 只需要记录是哪个服务的业务线程池已满
+        if (!dispatch(target, ctx, protocol, serializer, () -> handle(ctx, protocol, serializer, invocation))){
+            log.warn("[neptune rpc server handler]: service dispatcher is full - {}", invocation.getServiceName());
+        }
+    }
+
+    /**
+     * <h3>在 I/O 线程上反序列化调用请求并且查找调用的方法: 如果失败, 那么返回 null</h3>
+     */
+    private static NeptuneRpcInvocation prepare(NeptuneRpcProtocol protocol, INeptuneStreamSerializer serializer){
+        try {
+            NeptuneRpcInvocation invocation = deserialize(protocol, serializer);
+            if (Objects.isNull(invocation)){
+                log.error("[neptune rpc server handler]: deserialize invocation fail - {}", protocol.getRequestId());
+                return null;
+            }
+            resolve(invocation);
+            return invocation;
+        } catch (Exception e) {
+            log.error("[neptune rpc server handler]: prepare invocation occurred error - {}", protocol.getRequestId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * <h3>交给业务线程池处理: 如果线程池已满, 那么直接告诉客户端服务端繁忙, 不需要等到客户端超时</h3>
+     * @return 请求是否交给了业务线程池
+     */
+    private boolean dispatch(NeptuneRpcDispatcher dispatcher, ChannelHandlerContext ctx,
+                          NeptuneRpcProtocol protocol, INeptuneStreamSerializer serializer, Runnable task){
+        try {
+            dispatcher.dispatch(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("[neptune rpc server handler]: server is busy, reject request - {}", protocol.getRequestId());
+            writeFailure(ctx, protocol, serializer, SERVER_BUSY);
+            return false;
+        }
+    }
+
+    /**
+     * <h3>业务线程处理请求</h3>
+     */
+    private void handle(ChannelHandlerContext ctx, NeptuneRpcProtocol protocol, INeptuneStreamSerializer serializer,
+                        NeptuneRpcInvocation invocation){
+        try {
+            invoke(ctx, protocol, serializer, invocation);
+        } catch (Throwable cause) {
+            // 注: 业务线程中的异常无法交给 exceptionCaught 处理, 所以直接告诉客户端调用失败
+            log.error("[neptune rpc server handler]: handle request occurred error", cause);
+            writeFailure(ctx, protocol, serializer, NeptuneRpcResponseCode.FAIL.getMessage());
+        }
+    }
+
+    private void invoke(ChannelHandlerContext ctx, NeptuneRpcProtocol protocol, INeptuneStreamSerializer serializer,
+                        NeptuneRpcInvocation invocation) throws Throwable {
+        NeptuneRpcResponse response = new NeptuneRpcResponse();
+        // 1. 取出消息中的消息体, 然后将其反序列化: 如果已经在 I/O 线程上反序列化, 那么就不再处理
+        if (Objects.isNull(invocation)){
+            invocation = deserialize(protocol, serializer);
+        }
         log.debug("[neptune rpc server handler]: handle message deserialize - {}", invocation);
+        // 2. 查找调用的方法: 精简的调用请求会根据方法编号补全参数类型
+        NeptuneRpcMethod method = resolve(invocation);
         // 注: 调用过滤链处理客户端的请求
         filter.execute(invocation);
-        // 4. 从服务端容器中取出缓存的接口
+        // 3. 从服务端容器中取出缓存的接口
         NeptuneServiceWrapper wrapper = NeptuneRpcServerCache.Service.getService(invocation.getServiceName());
-        // 5. 如果缓存中不存在对应的接口, 那么就直接返回, 并且告诉客户端不存在
+        // 4. 如果缓存中不存在对应的接口或者方法, 那么就直接返回, 并且告诉客户端不存在
         if (Objects.isNull(wrapper) || Objects.isNull(wrapper.getService())){
-            response.setUuid(invocation.getUuid());
-            response.setCode(NeptuneRpcResponseCode.FAIL.getCode());
-            response.setMessage(NeptuneRpcResponseCode.FAIL.getMessage());
-            protocol.setContent(serializer.serialize(response));
-            ctx.writeAndFlush(protocol);
             log.error("[neptune rpc server handler]: client call service is null");
+            writeFailure(ctx, protocol, serializer, NeptuneRpcResponseCode.FAIL.getMessage());
             return;
         }
-        Object target = wrapper.getService();
-        // 6. 获取目标类中的所有方法
-        Method[] methods = target.getClass().getDeclaredMethods();
-        // 7. 开始匹配方法然后调用
-        Object result = null;
-        for (Method method : methods) {
-            if(checkMethod(method, invocation)){
-                result = method.invoke(target, invocation.getArgs());
-                break;
+        if (Objects.isNull(method)){
+            log.error("[neptune rpc server handler]: client call method doesn't exist - {}", invocation.getMethodName());
+            writeFailure(ctx, protocol, serializer, NeptuneRpcResponseCode.FAIL.getMessage());
+            return;
+        }
+        // 5. 通过生成的调用器调用方法
+        Object result = wrapper.getInvoker().invoke(method.getIndex(), invocation.getArgs());
+        // 6. 如果服务返回的是 CompletableFuture, 那么等到 Future 完成之后再写回, 不阻塞当前线程
+        if (result instanceof CompletionStage){
+            ((CompletionStage<?>) result).whenComplete((value, error) -> {
+                if (Objects.nonNull(error)){
+                    log.error("[neptune rpc server handler]: async service completed exceptionally", error);
+                    writeFailure(ctx, protocol, serializer, NeptuneRpcResponseCode.FAIL.getMessage());
+                    return;
+                }
+                writeResponse(ctx, protocol, serializer, response, value);
+            });
+            return;
+        }
+        // 7. 序列化结果写回给客户端
+        writeResponse(ctx, protocol, serializer, response, result);
+    }
+
+    /**
+     * <h3>反序列化调用请求: 反序列化之后消息体就不再需要了, 直接释放</h3>
+     */
+    private static NeptuneRpcInvocation deserialize(NeptuneRpcProtocol protocol, INeptuneStreamSerializer serializer){
+        try {
+            return serializer.deserialize(protocol.getContent(), NeptuneRpcInvocation.class);
+        } finally {
+            protocol.release();
+        }
+    }
+
+    /**
+     * <h3>查找调用的方法</h3>
+     * <h3>1. 优先根据方法编号、服务名和方法名查找, 然后补全调用请求中的参数类型</h3>
+     * <h3>2. 如果方法编号不存在或者无法区分, 那么根据服务名、方法名和参数类型查找</h3>
+     */
+    private static NeptuneRpcMethod resolve(NeptuneRpcInvocation invocation){
+        if (invocation.getMethodId() != 0){
+            NeptuneRpcMethod method = NeptuneRpcServerCache.Service.getMethod(
+                    invocation.getMethodId(), invocation.getServiceName(), invocation.getMethodName());
+            if (Objects.nonNull(method)){
+                invocation.setServiceName(method.getServiceName());
+                invocation.setMethodName(method.getMethod().getName());
+                invocation.setTypes(method.getTypes());
+                return method;
             }
         }
-        // 8. 序列化结果写回给客户端
-        response.setUuid(invocation.getUuid());
+        NeptuneServiceWrapper wrapper = NeptuneRpcServerCache.Service.getService(invocation.getServiceName());
+        if (Objects.isNull(wrapper) || Objects.isNull(wrapper.getMethods())){
+            return null;
+        }
+        return wrapper.getMethods().lookup(invocation.getMethodName(), invocation.getTypes());
+    }
+
+    /**
+     * <h3>序列化调用结果然后写回给客户端</h3>
+     */
+    private void writeResponse(ChannelHandlerContext ctx, NeptuneRpcProtocol protocol, INeptuneStreamSerializer serializer,
+                               NeptuneRpcResponse response, Object result){
         response.setCode(NeptuneRpcResponseCode.SUCCESS.getCode());
         response.setMessage(NeptuneRpcResponseCode.SUCCESS.getMessage());
         response.setBody(result);
-        ctx.writeAndFlush(new NeptuneRpcProtocol(protocol.getProtocolVersion(), protocol.getSerializer(),
-                serializer.serialize(response)));
+        // 注: 如果调用结果无法序列化, 那么告诉客户端调用失败
+        if (!write(ctx, protocol, serializer, response)){
+            writeFailure(ctx, protocol, serializer, NeptuneRpcResponseCode.FAIL.getMessage());
+        }
     }
 
     /**
-     * <h3>避免调用重载方法: 暂时的解决方案</h3>
+     * <h3>告诉客户端调用失败</h3>
      */
-    public boolean checkMethod(Method method, NeptuneRpcInvocation invocation){
-        // 1. 检查调用的方法名和当前方法名是否相同
-        if (!method.getName().equals(invocation.getMethodName()))
-            return false;
-        // 2. 检查调用的方法参数数量和当前方法的参数数量是否相同
-        if (method.getParameterCount() != invocation.getArgs().length)
+    private void writeFailure(ChannelHandlerContext ctx, NeptuneRpcProtocol protocol, INeptuneStreamSerializer serializer, String message){
+        NeptuneRpcResponse response = new NeptuneRpcResponse();
+        response.setCode(NeptuneRpcResponseCode.FAIL.getCode());
+        response.setMessage(message);
+        write(ctx, protocol, serializer, response);
+    }
+
+    /**
+     * <h3>序列化响应然后写回给客户端: 响应直接序列化到 I/O 缓冲区中</h3>
+     * @return 序列化是否成功
+     */
+    private boolean write(ChannelHandlerContext ctx, NeptuneRpcProtocol protocol, INeptuneStreamSerializer serializer,
+                          NeptuneRpcResponse response){
+        ByteBuf content = serializer.serialize(response, ctx.alloc());
+        if (Objects.isNull(content)){
+            log.error("[neptune rpc server handler]: serialize response fail - {}", protocol.getRequestId());
             return false;
-        // 3. 检查调用的方法参数是否当前方法的方法参数类型一致
-        return ArrayUtil.equals(invocation.getTypes(), method.getParameterTypes());
+        }
+        ctx.writeAndFlush(new NeptuneRpcProtocol(protocol.getProtocolVersion(), protocol.getSerializer(),
+                protocol.getRequestId(), content));
+        return true;
     }
 
     /**
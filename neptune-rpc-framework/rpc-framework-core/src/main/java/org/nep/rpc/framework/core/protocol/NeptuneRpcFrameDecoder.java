@@ -1,6 +1,7 @@
 package org.nep.rpc.framework.core.protocol;
 
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.nep.rpc.framework.core.common.constant.Protocol;
 
 /**
  * <h3>LTC 解码器: 防止半包粘包问题</h3>
@@ -9,19 +10,14 @@ public class NeptuneRpcFrameDecoder extends LengthFieldBasedFrameDecoder {
 
 
     /**
-     * <h3>数据包最大长度</h3>
+     *  <h3>长度字段的大小</h3>
      */
-    private static final int MAX_FRAME_LENGTH = 2048;
+    private static final int LENGTH_FIELD_LENGTH = 4;
 
     /**
-     * <h3>从首个字段开始到长度字段偏移量</h3>
+     * <h3>从首个字段开始到长度字段偏移量: 魔数 7B + 版本号 1B + 序列化算法 1B + 压缩算法 1B + 分片标记 1B + 请求序列号 8B + 分片序号 4B</h3>
      */
-    private static final int LENGTH_FIELD_OFFSET = 9;
-
-    /**
-     *  <h3>长度字段的大小</h3>
-     */
-    private static final int LENGTH_FIELD_LENGTH = 4;
+    private static final int LENGTH_FIELD_OFFSET = Protocol.HEADER_LENGTH - LENGTH_FIELD_LENGTH;
 
     /**
      * <h3>从长度字段开始还有多少个字节到达内容</h3>
@@ -34,7 +30,14 @@ public class NeptuneRpcFrameDecoder extends LengthFieldBasedFrameDecoder {
     private static final int INITIAL_BYTES_TO_STRIP = 0;
 
     public NeptuneRpcFrameDecoder(){
-        this(MAX_FRAME_LENGTH, LENGTH_FIELD_OFFSET, LENGTH_FIELD_LENGTH, LENGTH_ADJUSTMENT, INITIAL_BYTES_TO_STRIP);
+        this(Protocol.MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * @param maxFrameLength 数据包最大长度: 超过这个长度的数据包会直接抛出异常
+     */
+    public NeptuneRpcFrameDecoder(int maxFrameLength){
+        this(maxFrameLength, LENGTH_FIELD_OFFSET, LENGTH_FIELD_LENGTH, LENGTH_ADJUSTMENT, INITIAL_BYTES_TO_STRIP);
     }
 
     public NeptuneRpcFrameDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength, int lengthAdjustment, int initialBytesToStrip) {
@@ -17,8 +17,8 @@ import java.util.Map;
 @ToString
 public class NeptuneRpcInvocation implements Serializable {
     private static final long serialVersionUID = 1905122041950251207L;
-    // 0. 请求序列号
-    private String uuid;
+    // 0. 请求序列号: 通过协议头传输, 不参与序列化
+    private transient long requestId;
     // 1. 调用的目标接口
     private String serviceName;
     // 2. 调用的目标方法
@@ -29,4 +29,24 @@ public class NeptuneRpcInvocation implements Serializable {
     private Class<?>[] types;
     // 5. 附加参数
     private Map<String, Object> attachments;
+    // 6. 方法编号: 服务端优先根据方法编号查找方法, 为 0 时根据服务名、方法名和参数类型查找
+    private int methodId;
+
+    /**
+     * <h3>生成精简的调用请求: 携带方法编号、服务名和方法名, 不再携带参数类型</h3>
+     * <h3>注: 服务端根据服务名和方法名区分编号相同的方法; 如果没有方法编号, 那么依然发送完整的调用请求</h3>
+     */
+    public NeptuneRpcInvocation compact(){
+        if (methodId == 0){
+            return this;
+        }
+        NeptuneRpcInvocation invocation = new NeptuneRpcInvocation();
+        invocation.setRequestId(requestId);
+        invocation.setServiceName(serviceName);
+        invocation.setMethodName(methodName);
+        invocation.setMethodId(methodId);
+        invocation.setArgs(args);
+        invocation.setAttachments(attachments);
+        return invocation;
+    }
 }
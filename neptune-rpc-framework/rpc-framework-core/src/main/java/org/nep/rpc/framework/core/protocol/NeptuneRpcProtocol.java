@@ -1,52 +1,95 @@
 package org.nep.rpc.framework.core.protocol;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
 import lombok.Data;
 import lombok.ToString;
 import org.nep.rpc.framework.core.serialize.NeptuneSerializerType;
 
-import java.io.Serializable;
-
 import static org.nep.rpc.framework.core.common.constant.Protocol.*;
 
 /**
  * <h3>Neptune RPC 请求协议体/h3>
  * <h3>协议 = 魔数 + 版本号 + 序列化算法 + 消息类型 + 请求序列号 + 消息长度 + 消息正文</h3>
+ * <h3>注: 消息体直接引用 Netty 的缓冲区, 引用计数和消息体一致: 编码器写出后释放, 处理器反序列化后释放</h3>
  */
 @Data
 @ToString
-public class NeptuneRpcProtocol implements Serializable {
-
-    private static final long serialVersionUID = 5359096060555795690L;
+public class NeptuneRpcProtocol implements ReferenceCounted {
 
-    // 1. 魔数 7B
-    private String magicNumber;
+    // 1. 魔数 7B: 编解码时直接使用常量
     // 2. 版本号 1B
     private byte protocolVersion;
     // 3. 序列化算法 1B
     private byte serializer;
-    // 5. 消息体长度
-    private int contentLength;
-    // 6. 消息体 => 内容利用 NeptuneRpcInvocation 保存
-    private byte[] content;
+    // 4. 请求序列号 8B: 响应会携带请求的序列号返回
+    private long requestId;
+    // 5. 消息体 => 内容利用 NeptuneRpcInvocation 保存
+    private ByteBuf content;
 
-    public NeptuneRpcProtocol(byte[] content) {
-        this(PROTOCOL_VERSION, NeptuneSerializerType.SERIALIZER_KRYO.getCode(), content);
+    public NeptuneRpcProtocol(long requestId, ByteBuf content) {
+        this(PROTOCOL_VERSION, NeptuneSerializerType.SERIALIZER_KRYO.getCode(), requestId, content);
     }
 
-    public NeptuneRpcProtocol(byte[] content, byte serializer){
-        this(PROTOCOL_VERSION, serializer, content);
+    public NeptuneRpcProtocol(long requestId, ByteBuf content, byte serializer){
+        this(PROTOCOL_VERSION, serializer, requestId, content);
     }
 
-    public NeptuneRpcProtocol(byte protocolVersion, byte[] content){
-        this(protocolVersion, NeptuneSerializerType.SERIALIZER_KRYO.getCode(), content);
+    public NeptuneRpcProtocol(byte protocolVersion, long requestId, ByteBuf content){
+        this(protocolVersion, NeptuneSerializerType.SERIALIZER_KRYO.getCode(), requestId, content);
     }
 
-    public NeptuneRpcProtocol(byte protocolVersion, byte serializer, byte[] content) {
-        this.magicNumber = MAGIC_NUMBER;
+    public NeptuneRpcProtocol(byte protocolVersion, byte serializer, long requestId, ByteBuf content) {
         this.protocolVersion = protocolVersion;
         this.serializer = serializer;
-        this.contentLength = content.length;
+        this.requestId = requestId;
         this.content = content;
     }
 
+    /**
+     * <h3>消息体长度 4B</h3>
+     */
+    public int getContentLength(){
+        return content.readableBytes();
+    }
+
+    @Override
+    public int refCnt() {
+        return content.refCnt();
+    }
+
+    @Override
+    public NeptuneRpcProtocol retain() {
+        content.retain();
+        return this;
+    }
+
+    @Override
+    public NeptuneRpcProtocol retain(int increment) {
+        content.retain(increment);
+        return this;
+    }
+
+    @Override
+    public NeptuneRpcProtocol touch() {
+        content.touch();
+        return this;
+    }
+
+    @Override
+    public NeptuneRpcProtocol touch(Object hint) {
+        content.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return content.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return content.release(decrement);
+    }
+
 }
@@ -15,7 +15,6 @@ import java.io.Serializable;
 public class NeptuneRpcResponse implements Serializable {
 
     private static final long serialVersionUID = 715745410605631233L;
-    private String uuid;
     private int code;
     private String message;
     private Object body;
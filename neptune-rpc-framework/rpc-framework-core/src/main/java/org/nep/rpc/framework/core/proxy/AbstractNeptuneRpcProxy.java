@@ -0,0 +1,129 @@
+package org.nep.rpc.framework.core.proxy;
+
+import cn.hutool.core.util.ClassUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.nep.rpc.framework.core.client.NeptuneRpcConnectionHandler;
+import org.nep.rpc.framework.core.client.NeptuneRpcContext;
+import org.nep.rpc.framework.core.client.NeptuneRpcFuture;
+import org.nep.rpc.framework.core.client.NeptuneRpcReference;
+import org.nep.rpc.framework.core.common.cache.NeptuneRpcClientCache;
+import org.nep.rpc.framework.core.common.util.NeptuneUtil;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcResponse;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcResponseCode;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * <h3>动态代理的增强逻辑: JDK 动态代理和 Javassist 动态代理共用</h3>
+ * <h3>1. 同步调用: 调用方阻塞等待客户端处理器唤醒</h3>
+ * <h3>2. 异步调用: 接口方法返回 CompletableFuture 或者通过 NeptuneRpcContext 发起调用, 代理类直接返回不会阻塞</h3>
+ */
+@Slf4j
+public abstract class AbstractNeptuneRpcProxy implements InvocationHandler {
+
+    /**
+     * <h3>代理的目标对象接口</h3>
+     */
+    private final NeptuneRpcReference reference;
+
+    /**
+     * <h3>缓存每个方法的方法编号: 和同名的重载方法编号相同时为 0, 调用时携带参数类型</h3>
+     */
+    private final Map<Method, Integer> methodIds = new ConcurrentHashMap<>();
+
+    protected AbstractNeptuneRpcProxy(NeptuneRpcReference reference) {
+        this.reference = reference;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        // 1. 填充发送的请求
+        NeptuneRpcInvocation invocation = new NeptuneRpcInvocation();
+        invocation.setArgs(args);
+        invocation.setMethodName(method.getName());
+        invocation.setServiceName(reference.getTarget().getName());
+        invocation.setAttachments(reference.getAttachments());
+        invocation.setTypes(method.getParameterTypes());
+        invocation.setMethodId(methodIds.computeIfAbsent(method, this::getMethodId));
+        invocation.setRequestId(NeptuneRpcClientCache.Windows.nextRequestId());
+        // 2. 把即将要发送的请求的序列号登记到哈希表中, 确保接收的时候是对应的; 超时后由时间轮移除
+        NeptuneRpcFuture future = NeptuneRpcClientCache.Windows.put(invocation.getRequestId(), getTimeoutMillis());
+        // 3. 由当前线程序列化请求然后直接写入连接: 如果窗口已满, 那么就不再发送
+        if (!future.isDone()){
+            NeptuneRpcConnectionHandler.send(invocation, future);
+        }
+        // 4. 如果接口方法的返回值是 CompletableFuture, 那么直接返回由客户端处理器完成的 Future
+        if (isAsyncReturnType(method.getReturnType())){
+            return future.thenApply(AbstractNeptuneRpcProxy::resolve);
+        }
+        // 5. 如果调用方通过上下文发起异步调用, 那么将 Future 放入上下文后直接返回默认值
+        if (NeptuneRpcContext.isAsync()){
+            NeptuneRpcContext.setFuture(future.thenApply(AbstractNeptuneRpcProxy::resolve));
+            return ClassUtil.getDefaultValue(method.getReturnType());
+        }
+        // 6. 同步调用: 动态代理对象阻塞等待返回结果, 客户端处理器收到响应或者时间轮判定超时后会直接唤醒
+        NeptuneRpcResponse response;
+        try {
+            response = future.get();
+        } catch (ExecutionException e) {
+            // 7. 如果超时或者窗口已满那么就直接抛出异常
+            throw e.getCause();
+        }
+        log.info("[neptune rpc client proxy]: client receive response - {}", response);
+        if (NeptuneRpcResponseCode.FAIL.getCode() == response.getCode())
+            throw new RuntimeException(response.getMessage());
+        return response.getBody();
+    }
+
+    /**
+     * <h3>获取调用的超时时间: 如果引用没有配置, 那么就采用客户端配置的默认超时时间</h3>
+     */
+    private long getTimeoutMillis(){
+        Integer timeout = reference.getTimeout();
+        if (timeout == null || timeout <= 0){
+            return NeptuneRpcClientCache.Windows.getTimeout();
+        }
+        return timeout;
+    }
+
+    /**
+     * <h3>计算方法编号: 服务端根据服务名和方法名区分编号相同的方法, 只有同名的重载方法编号相同时才无法区分</h3>
+     */
+    private int getMethodId(Method method){
+        String serviceName = reference.getTarget().getName();
+        int id = NeptuneUtil.getMethodId(serviceName, method);
+        for (Method overload : reference.getTarget().getMethods()) {
+            if (!overload.equals(method) && overload.getName().equals(method.getName())
+                        && NeptuneUtil.getMethodId(serviceName, overload) == id){
+                return 0;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * <h3>判断接口方法是否声明为异步返回值</h3>
+     */
+    private static boolean isAsyncReturnType(Class<?> returnType){
+        return CompletableFuture.class.equals(returnType) || CompletionStage.class.equals(returnType);
+    }
+
+    /**
+     * <h3>异步调用时将响应转换为返回值</h3>
+     */
+    private static Object resolve(NeptuneRpcResponse response){
+        log.info("[neptune rpc client proxy]: client receive async response - {}", response);
+        if (NeptuneRpcResponseCode.FAIL.getCode() == response.getCode())
+            throw new CompletionException(new RuntimeException(response.getMessage()));
+        return response.getBody();
+    }
+
+}
@@ -52,7 +52,7 @@ public class NeptuneProxy {
         // 7. 生成 Constructor 构造函数
         CtConstructor constructor = new CtConstructor(new CtClass[]{pool.get(InvocationHandler.class.getName())}, proxy);
         // 7.1 给 Proxy 对象中的 InvocationHandler 赋值, $0 表示 this, $1、$2、$3 表示构造器的入参
-        constructor.setBody("$0.handler = $1");
+        constructor.setBody("$0.handler = $1;");
         // 7.2 给 Proxy 对象中的 InvocationHandler 设置访问修饰符
         constructor.setModifiers(Modifier.PUBLIC);
         proxy.addConstructor(constructor);
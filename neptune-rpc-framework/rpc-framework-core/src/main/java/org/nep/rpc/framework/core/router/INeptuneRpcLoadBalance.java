@@ -16,6 +16,8 @@ import java.util.List;
  * <h3>1.2.2 加权轮询: 根据权重进行轮询</h3>
  * <h3>1.2.3 平滑加权轮询: 非常神奇的算法, 但是不难</h3>
  * <h3>1.3 一致性哈希: 非常经典的算法, 好好了解下</h3>
+ * <h3>1.4 最少活跃调用数: 选择还没有结束的请求最少的服务端</h3>
+ * <h3>1.5 峰值 EWMA: 随机选出两个服务端, 选择响应延迟和活跃请求数量综合更低的服务端</h3>
  * <h3>2. 主流框架中的负载均衡策略</h3>
  * <h3>2.1 dubbo: 加权随机、加权轮询、一致性哈希、最小活跃调用数</h3>
  * <h3>2.2 nginx: 完全轮询、加权轮询、粘性 IP、响应时间、URL</h3>
@@ -36,6 +38,10 @@ public interface INeptuneRpcLoadBalance {
 
     String robinSmooth = "robin.smooth";
 
+    String leastActive = "least.active";
+
+    String peakEwma = "peak.ewma";
+
     /**
      * <h3>负载均衡</h3>
      * @param invokers 提供服务的所有服务端
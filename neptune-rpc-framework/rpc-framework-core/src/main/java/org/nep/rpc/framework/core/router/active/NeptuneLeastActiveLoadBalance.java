@@ -0,0 +1,71 @@
+package org.nep.rpc.framework.core.router.active;
+
+import org.nep.rpc.framework.core.client.NeptuneRpcInvoker;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
+import org.nep.rpc.framework.core.router.AbstractNeptuneRpcLoadBalance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <h3>最少活跃调用数</h3>
+ * <h3>1. 选择还没有结束的请求数量最少的服务端: 响应慢或者正在停顿的服务端积压的请求多, 自然就会少分配请求</h3>
+ * <h3>2. 如果有多个服务端的活跃请求数量相同, 那么就在这些服务端中按照权重随机选择</h3>
+ */
+public class NeptuneLeastActiveLoadBalance extends AbstractNeptuneRpcLoadBalance {
+
+    @Override
+    public NeptuneRpcInvoker doSelect(List<NeptuneRpcInvoker> invokers, NeptuneRpcInvocation invocation) {
+        int size = invokers.size();
+        // 1. 最少的活跃请求数量
+        long leastActive = Long.MAX_VALUE;
+        // 2. 活跃请求数量最少的服务端的下标和数量
+        int[] leastIndexes = new int[size];
+        int leastCount = 0;
+        // 3. 活跃请求数量最少的服务端的总权重, 以及权重是否都相同
+        int weightSum = 0;
+        int firstWeight = 0;
+        boolean isSame = true;
+        for (int index = 0; index < size; index++) {
+            NeptuneRpcInvoker invoker = invokers.get(index);
+            // 注: 活跃请求数量随时都在变化, 每个服务端只读取一次
+            long active = invoker.getActive();
+            int weight = Math.max(invoker.getFixedWeight(), 0);
+            // 3.1 找到活跃请求数量更少的服务端, 那么重新开始记录
+            if (active < leastActive){
+                leastActive = active;
+                leastCount = 0;
+                weightSum = 0;
+                firstWeight = weight;
+                isSame = true;
+            }
+            // 3.2 记录活跃请求数量最少的服务端
+            else if (active > leastActive){
+                continue;
+            }
+            else if (weight != firstWeight){
+                isSame = false;
+            }
+            leastIndexes[leastCount++] = index;
+            weightSum += weight;
+        }
+        // 4. 如果只有一个服务端的活跃请求数量最少, 那么直接返回
+        if (leastCount == 1){
+            return invokers.get(leastIndexes[0]);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // 5. 如果权重不同, 那么就按照权重随机选择
+        if (!isSame && weightSum > 0){
+            int offset = random.nextInt(weightSum);
+            for (int index = 0; index < leastCount; index++) {
+                NeptuneRpcInvoker invoker = invokers.get(leastIndexes[index]);
+                offset -= Math.max(invoker.getFixedWeight(), 0);
+                if (offset < 0){
+                    return invoker;
+                }
+            }
+        }
+        // 6. 如果权重都相同, 那么就随机选择一个
+        return invokers.get(leastIndexes[random.nextInt(leastCount)]);
+    }
+}
@@ -0,0 +1,49 @@
+package org.nep.rpc.framework.core.router.latency;
+
+import org.nep.rpc.framework.core.client.NeptuneRpcInvoker;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
+import org.nep.rpc.framework.core.router.AbstractNeptuneRpcLoadBalance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <h3>峰值 EWMA + 二选一 (power of two choices)</h3>
+ * <h3>1. 每个服务端的负载 = 响应延迟的峰值移动平均值 * (活跃请求数量 + 1)</h3>
+ * <h3>2. 随机选出两个服务端, 然后选择负载更低的那个: 不需要遍历所有服务端, 也不会让所有请求同时涌向同一个服务端</h3>
+ * <h3>注: 延迟由客户端收到响应时记录, 服务端变慢之后几个请求内就会减少分配给它的请求</h3>
+ */
+public class NeptunePeakEwmaLoadBalance extends AbstractNeptuneRpcLoadBalance {
+
+    /**
+     * <h3>还没有收到过响应但是已经有请求的服务端的负载: 避免所有请求都涌向刚上线的服务端</h3>
+     */
+    private static final double PENALTY = (double) (Long.MAX_VALUE >> 16);
+
+    @Override
+    public NeptuneRpcInvoker doSelect(List<NeptuneRpcInvoker> invokers, NeptuneRpcInvocation invocation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = invokers.size();
+        // 1. 随机选出两个不同的服务端
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first){
+            second++;
+        }
+        // 2. 选择负载更低的服务端
+        long now = System.nanoTime();
+        NeptuneRpcInvoker left = invokers.get(first);
+        NeptuneRpcInvoker right = invokers.get(second);
+        return load(left, now) <= load(right, now) ? left : right;
+    }
+
+    private static double load(NeptuneRpcInvoker invoker, long now){
+        long active = invoker.getActive();
+        double cost = invoker.getLatency().cost(now);
+        // 注: 还没有收到过响应的服务端无法估计延迟, 如果已经有请求在等待, 那么就认为负载很高
+        if (cost == 0 && active > 0){
+            return PENALTY + active;
+        }
+        return cost * (active + 1);
+    }
+}
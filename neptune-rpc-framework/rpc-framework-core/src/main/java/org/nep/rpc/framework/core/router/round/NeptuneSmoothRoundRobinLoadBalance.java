@@ -4,35 +4,172 @@ import org.nep.rpc.framework.core.client.NeptuneRpcInvoker;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
 import org.nep.rpc.framework.core.router.AbstractNeptuneRpcLoadBalance;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <h3>平滑加权轮询</h3>
+ * <h3>1. 平滑加权轮询的结果只和权重有关, 所以在服务端上下线或者权重变化时预先算出一整轮的选择顺序</h3>
+ * <h3>2. 选择时只需要原子地移动下标, 不会修改共享的服务端对象, 并发调用也不会打乱顺序</h3>
+ * <h3>3. 服务端快照在上下线或者权重变化时会整体替换, 所以按照服务端集合本身 (而不是服务名称) 缓存选择顺序</h3>
+ * <h3>注: 分组和直连的子快照各自对应一个选择顺序, 交替调用时不会互相覆盖; 快照被替换并且回收之后选择顺序随之删除</h3>
  */
 public class NeptuneSmoothRoundRobinLoadBalance extends AbstractNeptuneRpcLoadBalance {
 
+    /**
+     * <h3>一整轮选择顺序的最大长度: 总权重超过时会按比例缩小权重</h3>
+     */
+    private static final int MAX_SCHEDULE_LENGTH = 1 << 16;
+
+    /**
+     * <h3>服务端集合 => 选择顺序: 按照集合的引用比较, 并且弱引用集合, 不会阻止替换掉的快照被回收</h3>
+     */
+    private final Map<InvokersKey, SmoothWeightSelector> selectors = new ConcurrentHashMap<>();
+
+    /**
+     * <h3>已经被回收的服务端集合</h3>
+     */
+    private final ReferenceQueue<List<NeptuneRpcInvoker>> expired = new ReferenceQueue<>();
+
     @Override
     public NeptuneRpcInvoker doSelect(List<NeptuneRpcInvoker> invokers, NeptuneRpcInvocation invocation) {
-        // 1. 计算服务提供者的总动态权重
-        int weightSum = invokers.stream()
-                                .mapToInt(NeptuneRpcInvoker::getFixedWeight)
-                                .sum();
-        // 2. 找到权重最大的服务提供者
-        NeptuneRpcInvoker target = null;
-        for (NeptuneRpcInvoker invoker : invokers) {
-            if (target == null || invoker.getDynamicWeight() > target.getDynamicWeight()){
-                target = invoker;
+        // 1. 删除已经被回收的服务端集合对应的选择顺序
+        expunge();
+        // 2. 获取服务端集合对应的选择顺序: 如果不存在, 那么计算选择顺序
+        // 注: 查找时的键不需要注册到回收队列中, 只有真正放入哈希表的键才需要
+        SmoothWeightSelector selector = selectors.get(new InvokersKey(invokers, null));
+        if (selector == null){
+            selector = selectors.computeIfAbsent(new InvokersKey(invokers, expired), key -> new SmoothWeightSelector(invokers));
+        }
+        // 3. 按照选择顺序选择服务端
+        return selector.select();
+    }
+
+    private void expunge(){
+        Reference<? extends List<NeptuneRpcInvoker>> reference;
+        while ((reference = expired.poll()) != null){
+            selectors.remove(reference);
+        }
+    }
+
+    /**
+     * <h3>按照引用比较的服务端集合弱引用</h3>
+     * <h3>注: 快照中的服务端不会被修改, 集合是同一个对象时权重一定没有变化, 不需要每次调用都比较集合的内容</h3>
+     */
+    private static final class InvokersKey extends WeakReference<List<NeptuneRpcInvoker>> {
+
+        private final int hash;
+
+        private InvokersKey(List<NeptuneRpcInvoker> invokers, ReferenceQueue<List<NeptuneRpcInvoker>> queue) {
+            super(invokers, queue);
+            this.hash = System.identityHashCode(invokers);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object source) {
+            if (this == source)
+                return true;
+            if (!(source instanceof InvokersKey))
+                return false;
+            List<NeptuneRpcInvoker> invokers = get();
+            return invokers != null && invokers == ((InvokersKey) source).get();
+        }
+    }
+
+    /**
+     * <h3>注: 选择顺序不能引用服务端集合, 否则集合永远不会被回收</h3>
+     */
+    private static final class SmoothWeightSelector {
+
+        /**
+         * <h3>一整轮的选择顺序</h3>
+         */
+        private final NeptuneRpcInvoker[] schedule;
+
+        /**
+         * <h3>下一次选择的下标: 从随机位置开始, 避免所有客户端同时从第一个服务端开始</h3>
+         */
+        private final AtomicLong position;
+
+        private SmoothWeightSelector(List<NeptuneRpcInvoker> invokers) {
+            int[] weights = weights(invokers);
+            int weightSum = 0;
+            for (int weight : weights) {
+                weightSum += weight;
+            }
+            // 1. 平滑加权轮询: 每一步所有服务端的当前权重增加固定权重, 选中当前权重最大的服务端, 然后减去总权重
+            int[] current = new int[weights.length];
+            this.schedule = new NeptuneRpcInvoker[weightSum];
+            for (int step = 0; step < weightSum; step++) {
+                int target = 0;
+                for (int index = 0; index < weights.length; index++) {
+                    current[index] += weights[index];
+                    if (current[index] > current[target]){
+                        target = index;
+                    }
+                }
+                current[target] -= weightSum;
+                schedule[step] = invokers.get(target);
             }
+            this.position = new AtomicLong(ThreadLocalRandom.current().nextInt(weightSum));
         }
-        // 3. 选中的服务提供者减少动态权重
-        if (target != null){
-            target.setDynamicWeight(target.getDynamicWeight() - weightSum);
+
+        private NeptuneRpcInvoker select(){
+            return schedule[(int) ((position.getAndIncrement() & Long.MAX_VALUE) % schedule.length)];
         }
-        // 4. 更新每个服务提供者的动态权重
-        for (NeptuneRpcInvoker invoker : invokers) {
-            // 注: 将每个服务提供者的动态权重 = 当前的动态权重 + 固定权重
-            invoker.setDynamicWeight(invoker.getDynamicWeight() + invoker.getFixedWeight());
+
+        /**
+         * <h3>计算每个服务端的权重</h3>
+         * <h3>1. 所有服务端都没有权重时按照相同的权重轮询</h3>
+         * <h3>2. 所有权重除以最大公约数, 缩短一整轮的长度</h3>
+         * <h3>3. 总权重仍然超过上限时按比例缩小, 有权重的服务端至少保留 1</h3>
+         */
+        private static int[] weights(List<NeptuneRpcInvoker> invokers){
+            int[] weights = new int[invokers.size()];
+            long weightSum = 0;
+            int divisor = 0;
+            for (int index = 0; index < weights.length; index++) {
+                weights[index] = Math.max(invokers.get(index).getFixedWeight(), 0);
+                weightSum += weights[index];
+                divisor = gcd(divisor, weights[index]);
+            }
+            for (int index = 0; index < weights.length; index++) {
+                if (weightSum == 0){
+                    weights[index] = 1;
+                    continue;
+                }
+                weights[index] /= divisor;
+            }
+            weightSum = weightSum == 0 ? weights.length : weightSum / divisor;
+            if (weightSum > MAX_SCHEDULE_LENGTH){
+                for (int index = 0; index < weights.length; index++) {
+                    if (weights[index] > 0){
+                        weights[index] = (int) Math.max((long) weights[index] * MAX_SCHEDULE_LENGTH / weightSum, 1);
+                    }
+                }
+            }
+            return weights;
         }
-        return target;
+
+        private static int gcd(int left, int right){
+            while (right != 0){
+                int remainder = left % right;
+                left = right;
+                right = remainder;
+            }
+            return left;
+        }
+
     }
 }
@@ -12,6 +12,8 @@ public interface INeptuneSerializer {
 
     String jdk = "jdk";
 
+    String protobuf = "protobuf";
+
     byte[] serialize(Object source);
 
     <T> T deserialize(byte[] source, Class<T> clazz);
@@ -0,0 +1,64 @@
+package org.nep.rpc.framework.core.serialize;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * <h3>基于 Netty 缓冲区的序列化算法</h3>
+ * <h3>1. 序列化时直接写入分配器提供的缓冲区, 反序列化时直接从缓冲区读取, 不再经过中间的字节数组</h3>
+ * <h3>2. 内置的序列化算法都实现了这个接口, 其余只实现 INeptuneSerializer 的算法通过 of 方法适配</h3>
+ */
+public interface INeptuneStreamSerializer extends INeptuneSerializer {
+
+    /**
+     * <h3>序列化对象到缓冲区</h3>
+     * @param source 序列化的对象
+     * @param allocator 缓冲区分配器
+     * @return 序列化的结果: 如果序列化失败, 那么返回 null 并且已经释放缓冲区
+     */
+    ByteBuf serialize(Object source, ByteBufAllocator allocator);
+
+    /**
+     * <h3>从缓冲区反序列化对象: 注: 不会释放缓冲区</h3>
+     * @param source 缓冲区的可读部分就是序列化的结果
+     * @param clazz 反序列化的类型
+     */
+    <T> T deserialize(ByteBuf source, Class<T> clazz);
+
+    /**
+     * <h3>适配只支持字节数组的序列化算法</h3>
+     */
+    static INeptuneStreamSerializer of(INeptuneSerializer serializer){
+        if (serializer instanceof INeptuneStreamSerializer){
+            return (INeptuneStreamSerializer) serializer;
+        }
+        return new INeptuneStreamSerializer() {
+            @Override
+            public ByteBuf serialize(Object source, ByteBufAllocator allocator) {
+                byte[] target = serializer.serialize(source);
+                if (target == null){
+                    return null;
+                }
+                return allocator.ioBuffer(target.length).writeBytes(target);
+            }
+
+            @Override
+            public <T> T deserialize(ByteBuf source, Class<T> clazz) {
+                // 注: 如果缓冲区本身就是完整的堆内数组, 那么不会复制
+                return serializer.deserialize(ByteBufUtil.getBytes(source, source.readerIndex(), source.readableBytes(), false), clazz);
+            }
+
+            @Override
+            public byte[] serialize(Object source) {
+                return serializer.serialize(source);
+            }
+
+            @Override
+            public <T> T deserialize(byte[] source, Class<T> clazz) {
+                return serializer.deserialize(source, clazz);
+            }
+        };
+    }
+
+}
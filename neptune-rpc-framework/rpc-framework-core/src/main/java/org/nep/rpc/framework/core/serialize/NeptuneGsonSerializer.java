@@ -1,8 +1,16 @@
 package org.nep.rpc.framework.core.serialize;
 
 import com.google.gson.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 
@@ -10,7 +18,7 @@ import java.nio.charset.StandardCharsets;
  * <h3>FastJson 序列化</h3>
  */
 @Slf4j
-public class NeptuneGsonSerializer implements INeptuneSerializer {
+public class NeptuneGsonSerializer implements INeptuneStreamSerializer {
 
     private static final ThreadLocal<Gson> GSON_LOCAL = ThreadLocal.withInitial(()-> new GsonBuilder()
                    .registerTypeAdapter(Class.class, new ClassSerializer())
@@ -32,6 +40,36 @@ public class NeptuneGsonSerializer implements INeptuneSerializer {
         return target;
     }
 
+    @Override
+    public ByteBuf serialize(Object source, ByteBufAllocator allocator) {
+        log.info("[neptune rpc serializer]: gson serialize start");
+        ByteBuf target = allocator.ioBuffer();
+        // 注: 字符直接编码写入缓冲区, 不再生成中间的字符串
+        try (Writer writer = new OutputStreamWriter(new ByteBufOutputStream(target), StandardCharsets.UTF_8)){
+            GSON_LOCAL.get().toJson(source, writer);
+            writer.flush();
+            log.info("[neptune rpc serializer]: gson serialize end");
+            return target;
+        } catch (Exception e) {
+            log.error("[neptune rpc serializer]: gson serialize occurred error", e);
+            target.release();
+            return null;
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf source, Class<T> clazz) {
+        log.info("[neptune rpc serializer]: gson deserialize start");
+        try (Reader reader = new InputStreamReader(new ByteBufInputStream(source), StandardCharsets.UTF_8)){
+            T target = GSON_LOCAL.get().fromJson(reader, clazz);
+            log.info("[neptune rpc serializer]: gson deserialize end");
+            return target;
+        } catch (Exception e) {
+            log.error("[neptune rpc serializer]: gson deserialize occurred error", e);
+            return null;
+        }
+    }
+
     private static class ClassSerializer implements JsonSerializer<Class<?>>, JsonDeserializer<Class<?>>{
         @Override
         public Class<?> deserialize(JsonElement jsonElement, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
@@ -2,6 +2,10 @@ package org.nep.rpc.framework.core.serialize;
 
 import com.caucho.hessian.io.Hessian2Input;
 import com.caucho.hessian.io.Hessian2Output;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.ByteArrayInputStream;
@@ -12,7 +16,7 @@ import java.io.ByteArrayOutputStream;
  */
 @Slf4j
 @SuppressWarnings("unchecked")
-public class NeptuneHessianSerializer implements INeptuneSerializer {
+public class NeptuneHessianSerializer implements INeptuneStreamSerializer {
     @Override
     public byte[] serialize(Object source) {
         log.info("[neptune rpc serializer]: hessian serialize start");
@@ -53,4 +57,39 @@ public class NeptuneHessianSerializer implements INeptuneSerializer {
             return (T) target;
         }
     }
+
+    @Override
+    public ByteBuf serialize(Object source, ByteBufAllocator allocator) {
+        log.info("[neptune rpc serializer]: hessian serialize start");
+        ByteBuf target = allocator.ioBuffer();
+        try {
+            // 1. 初始化流对象: 直接写入缓冲区
+            Hessian2Output hessian = new Hessian2Output(new ByteBufOutputStream(target));
+            // 2. 序列化对象
+            hessian.writeObject(source);
+            hessian.completeMessage();
+            hessian.close();
+            log.info("[neptune rpc serializer]: hessian serialize end");
+            return target;
+        } catch (Exception e) {
+            log.error("[neptune rpc serializer]: hessian serialize occurred error", e);
+            target.release();
+            return null;
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf source, Class<T> clazz) {
+        log.info("[neptune rpc serializer]: hessian deserialize start");
+        try {
+            Hessian2Input hessian = new Hessian2Input(new ByteBufInputStream(source));
+            Object target = hessian.readObject();
+            hessian.close();
+            log.info("[neptune rpc serializer]: hessian deserialize end");
+            return (T) target;
+        } catch (Exception e) {
+            log.error("[neptune rpc serializer]: hessian deserialize occurred error", e);
+            return null;
+        }
+    }
 }
@@ -2,12 +2,18 @@ package org.nep.rpc.framework.core.serialize;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 @Slf4j
-public class NeptuneJackSonSerializer implements INeptuneSerializer {
+public class NeptuneJackSonSerializer implements INeptuneStreamSerializer {
 
     private static final ThreadLocal<ObjectMapper> MAPPER_LOCAL =
             ThreadLocal.withInitial(ObjectMapper::new);
@@ -37,4 +43,32 @@ public class NeptuneJackSonSerializer implements INeptuneSerializer {
             return null;
         }
     }
+
+    @Override
+    public ByteBuf serialize(Object source, ByteBufAllocator allocator) {
+        log.info("[neptune rpc serializer]: jackson serialize start");
+        ByteBuf target = allocator.ioBuffer();
+        try (OutputStream output = new ByteBufOutputStream(target)){
+            MAPPER_LOCAL.get().writeValue(output, source);
+            log.info("[neptune rpc serializer]: jackson serialize end");
+            return target;
+        } catch (IOException e) {
+            log.error("[neptune rpc serializer]: jackson serialize occurred error", e);
+            target.release();
+            return null;
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf source, Class<T> clazz) {
+        log.info("[neptune rpc serializer]: jackson deserialize start");
+        try (InputStream input = new ByteBufInputStream(source)){
+            T target = MAPPER_LOCAL.get().readValue(input, clazz);
+            log.info("[neptune rpc serializer]: jackson deserialize end");
+            return target;
+        } catch (IOException e) {
+            log.error("[neptune rpc serializer]: jackson deserialize occurred error", e);
+            return null;
+        }
+    }
 }
@@ -1,5 +1,9 @@
 package org.nep.rpc.framework.core.serialize;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
@@ -9,7 +13,7 @@ import java.io.*;
  */
 @Slf4j
 @SuppressWarnings("unchecked")
-public class NeptuneJdkSerializer implements INeptuneSerializer
+public class NeptuneJdkSerializer implements INeptuneStreamSerializer
 {
 
     @Override
@@ -48,4 +52,37 @@ public class NeptuneJdkSerializer implements INeptuneSerializer
             return (T) target;
         }
     }
+
+    @Override
+    public ByteBuf serialize(Object source, ByteBufAllocator allocator) {
+        log.info("[neptune rpc serializer]: jdk serialize start");
+        ByteBuf target = allocator.ioBuffer();
+        // 1. 初始化流对象: 直接写入缓冲区
+        try (ObjectOutputStream oos = new ObjectOutputStream(new ByteBufOutputStream(target))){
+            // 2. 序列化
+            oos.writeObject(source);
+            oos.flush();
+            log.info("[neptune rpc serializer]: jdk serialize end");
+            return target;
+        } catch (IOException e) {
+            log.error("[neptune rpc serializer]: jdk serialize occurred error", e);
+            target.release();
+            return null;
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf source, Class<T> clazz) {
+        log.info("[neptune rpc serializer]: jdk deserialize start");
+        // 1. 初始化流对象: 直接读取缓冲区
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteBufInputStream(source))){
+            // 2. 反序列化对象
+            Object target = ois.readObject();
+            log.info("[neptune rpc serializer]: jdk deserialize end");
+            return (T) target;
+        } catch (IOException | ClassNotFoundException e) {
+            log.error("[neptune rpc serializer]: jdk deserialize occurred error", e);
+            return null;
+        }
+    }
 }
@@ -6,27 +6,90 @@ import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.DefaultArraySerializers;
 import com.esotericsoftware.kryo.serializers.DefaultSerializers;
 import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.esotericsoftware.kryo.util.Pool;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
 import org.nep.rpc.framework.core.protocol.NeptuneRpcResponse;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 
 /**
  * <h3>Kryo 序列化</h3>
  */
 @Slf4j
 @SuppressWarnings("unchecked")
-public class NeptuneKryoSerializer implements INeptuneSerializer {
+public class NeptuneKryoSerializer implements INeptuneStreamSerializer {
+
+    /**
+     * <h3>输入输出对象的初始缓冲区大小</h3>
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * <h3>归还到池中的输出对象的缓冲区上限: 超过上限的缓冲区直接丢弃, 避免偶尔的大对象长期占用内存</h3>
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * <h3>默认的池容量</h3>
+     */
+    public static final int DEFAULT_POOL_SIZE = 64;
+
     /**
      * <h3>1. Kryo 是非线程安全的 </h3>
-     * <h3>2. 采用 ThreadLocal 控制并发序列化</h3>
-     * <h3>3. 局部变量确实可以控制, 但是每次序列化都需要创建对象, 浪费性能</h3>
+     * <h3>2. 采用有界的对象池控制并发序列化: ThreadLocal 会让每个线程都持有一个 Kryo, 线程很多或者使用虚拟线程时会泄露</h3>
+     * <h3>3. 池中没有空闲对象时会直接创建, 超过容量的对象归还时直接丢弃</h3>
+     */
+    private final Pool<Kryo> kryoPool;
+
+    private final Pool<Output> outputPool;
+
+    private final Pool<Input> inputPool;
+
+    public NeptuneKryoSerializer() {
+        this(Collections.emptyList(), false, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * @param registrations 预先注册的类: 注: 客户端和服务端注册的类以及顺序必须相同
+     * @param registrationRequired 是否只允许序列化注册过的类: 注册过的类只需要写入编号, 不需要写入全限定名
+     * @param poolSize 池容量
      */
-    private static final ThreadLocal<Kryo> KRYO_LOCAL = ThreadLocal.withInitial(()->{
+    public NeptuneKryoSerializer(List<Class<?>> registrations, boolean registrationRequired, int poolSize) {
+        this.kryoPool = new Pool<Kryo>(true, false, poolSize) {
+            @Override
+            protected Kryo create() {
+                return newKryo(registrations, registrationRequired);
+            }
+        };
+        this.outputPool = new Pool<Output>(true, false, poolSize) {
+            @Override
+            protected Output create() {
+                return new Output(BUFFER_SIZE, -1);
+            }
+        };
+        this.inputPool = new Pool<Input>(true, false, poolSize) {
+            @Override
+            protected Input create() {
+                return new Input(BUFFER_SIZE);
+            }
+        };
+    }
+
+    private static Kryo newKryo(List<Class<?>> registrations, boolean registrationRequired){
         // 1. 准备 Kryo 对象
         Kryo kryo = new Kryo();
+        kryo.setRegistrationRequired(registrationRequired);
         // 2. 添加注册器
         kryo.register(NeptuneRpcInvocation.class,
                 new FieldSerializer<NeptuneRpcInvocation>(kryo, NeptuneRpcInvocation.class));
@@ -38,44 +101,127 @@ public class NeptuneKryoSerializer implements INeptuneSerializer {
                 new DefaultSerializers.ClassSerializer());
         kryo.register(Class[].class,
                 new DefaultArraySerializers.ObjectArraySerializer(kryo, Class[].class));
-        // 3. 设置对象引用
+        // 注: 调用请求的附加信息以及常见的返回值类型
+        kryo.register(HashMap.class);
+        kryo.register(LinkedHashMap.class);
+        kryo.register(ArrayList.class);
+        kryo.register(LinkedList.class);
+        kryo.register(HashSet.class);
+        // 3. 注册配置的类
+        registrations.forEach(kryo::register);
+        // 4. 设置对象引用
         kryo.setReferences(false);
         return kryo;
-    });
+    }
 
     @Override
     public byte[] serialize(Object source) {
         log.info("[neptune rpc serializer]: kryo serialize start");
-        byte[] target = null;
-        // 1. 准备输出结果
-        try (Output output = new Output(new ByteArrayOutputStream())){
-            // 2. 序列化
-            KRYO_LOCAL.get()
-                    .writeClassAndObject(output, source);
-            // 3. 从输出对象获取序列化结果
-            target = output.toBytes();
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            // 1. 序列化
+            kryo.writeClassAndObject(output, source);
+            // 2. 从输出对象获取序列化结果
+            byte[] target = output.toBytes();
             log.info("[neptune rpc serialize]: kryo serialize end");
             return target;
         } catch (Exception e) {
             log.error("[neptune rpc serialize]: kryo serialize occurred error", e);
             return null;
+        } finally {
+            free(kryo, output);
         }
     }
 
     @Override
     public <T> T deserialize(byte[] source, Class<T> clazz) {
         log.info("[neptune rpc serializer]: kryo deserialize start");
-        Object target = null;
-        // 1. 获取输入结果
-        try (Input input = new Input(new ByteArrayInputStream(source))){
+        Kryo kryo = kryoPool.obtain();
+        Input input = inputPool.obtain();
+        byte[] buffer = input.getBuffer();
+        try {
+            // 1. 输入对象直接引用字节数组
+            input.setBuffer(source);
             // 2. 反序列化并且获取结果
-            target = KRYO_LOCAL.get()
-                             .readClassAndObject(input);
+            Object target = kryo.readClassAndObject(input);
             log.info("[neptune rpc serialize]: kryo deserialize end");
             return (T) target;
         } catch (Exception e) {
             log.error("[neptune rpc serialize]: kryo deserialize occurred error", e);
+            return null;
+        } finally {
+            free(kryo, input, buffer);
+        }
+    }
+
+    @Override
+    public ByteBuf serialize(Object source, ByteBufAllocator allocator) {
+        log.info("[neptune rpc serializer]: kryo serialize start");
+        ByteBuf target = allocator.ioBuffer();
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            // 1. 输出对象的缓冲区写满之后直接写入 Netty 缓冲区
+            output.setOutputStream(new ByteBufOutputStream(target));
+            // 2. 序列化
+            kryo.writeClassAndObject(output, source);
+            output.flush();
+            log.info("[neptune rpc serialize]: kryo serialize end");
+            return target;
+        } catch (Exception e) {
+            log.error("[neptune rpc serialize]: kryo serialize occurred error", e);
+            target.release();
+            return null;
+        } finally {
+            free(kryo, output);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf source, Class<T> clazz) {
+        log.info("[neptune rpc serializer]: kryo deserialize start");
+        Kryo kryo = kryoPool.obtain();
+        Input input = inputPool.obtain();
+        byte[] buffer = input.getBuffer();
+        try {
+            // 1. 堆内缓冲区直接引用底层数组, 否则通过流读取
+            if (source.hasArray()){
+                input.setBuffer(source.array(), source.arrayOffset() + source.readerIndex(), source.readableBytes());
+            }else{
+                input.setInputStream(new ByteBufInputStream(source));
+            }
+            // 2. 反序列化并且获取结果
+            Object target = kryo.readClassAndObject(input);
+            log.info("[neptune rpc serialize]: kryo deserialize end");
             return (T) target;
+        } catch (Exception e) {
+            log.error("[neptune rpc serialize]: kryo deserialize occurred error", e);
+            return null;
+        } finally {
+            free(kryo, input, buffer);
         }
     }
+
+    /**
+     * <h3>归还 Kryo 和输出对象</h3>
+     */
+    private void free(Kryo kryo, Output output){
+        kryoPool.free(kryo);
+        output.setOutputStream(null);
+        if (output.getBuffer().length > MAX_POOLED_BUFFER_SIZE){
+            output.setBuffer(new byte[BUFFER_SIZE], -1);
+        }
+        outputPool.free(output);
+    }
+
+    /**
+     * <h3>归还 Kryo 和输入对象: 注: 输入对象可能引用了外部的数组, 需要换回自己的缓冲区</h3>
+     */
+    private void free(Kryo kryo, Input input, byte[] buffer){
+        kryoPool.free(kryo);
+        input.setInputStream(null);
+        input.setBuffer(buffer);
+        inputPool.free(input);
+    }
 }
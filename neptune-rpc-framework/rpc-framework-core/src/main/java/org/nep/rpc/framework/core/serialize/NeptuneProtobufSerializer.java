@@ -0,0 +1,319 @@
+package org.nep.rpc.framework.core.serialize;
+
+import cn.hutool.core.util.ClassLoaderUtil;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcResponse;
+import org.nep.rpc.framework.core.protocol.protobuf.NeptuneRpcProtobuf;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h3>Protobuf 序列化</h3>
+ * <h3>1. 调用请求和响应采用 neptune.proto 中定义的消息编码, 其他语言也可以直接解析</h3>
+ * <h3>2. 参数和返回值只支持基本类型、字符串、字节数组以及 Protobuf 消息, 用户消息采用 Any 编码</h3>
+ * <h3>3. 反序列化 Any 需要知道消息对应的类: 配置中的消息类、序列化过的消息类以及参数类型中的消息类都会被记录</h3>
+ */
+@Slf4j
+@SuppressWarnings("unchecked")
+public class NeptuneProtobufSerializer implements INeptuneStreamSerializer {
+
+    private static final String TYPE_URL_SEPARATOR = "/";
+
+    /**
+     * <h3>消息全限定名 => 消息类</h3>
+     */
+    private final Map<String, Class<? extends Message>> messages = new ConcurrentHashMap<>();
+
+    /**
+     * <h3>消息类 => 解析器</h3>
+     */
+    private final Map<Class<?>, Parser<? extends Message>> parsers = new ConcurrentHashMap<>();
+
+    public NeptuneProtobufSerializer() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * @param registrations 预先记录的消息类: 精简的调用请求不携带参数类型, 服务端需要提前知道参数中的消息类
+     */
+    public NeptuneProtobufSerializer(List<Class<? extends Message>> registrations) {
+        registrations.forEach(this::register);
+    }
+
+    /**
+     * <h3>记录消息类</h3>
+     */
+    public void register(Class<? extends Message> clazz){
+        Message instance = defaultInstance(clazz);
+        messages.putIfAbsent(instance.getDescriptorForType().getFullName(), clazz);
+    }
+
+    @Override
+    public byte[] serialize(Object source) {
+        log.info("[neptune rpc serializer]: protobuf serialize start");
+        try {
+            byte[] target = toMessage(source).toByteArray();
+            log.info("[neptune rpc serializer]: protobuf serialize end");
+            return target;
+        } catch (Exception e) {
+            log.error("[neptune rpc serializer]: protobuf serialize occurred error", e);
+            return null;
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] source, Class<T> clazz) {
+        log.info("[neptune rpc serializer]: protobuf deserialize start");
+        try {
+            T target = fromMessage(CodedInputStream.newInstance(source), clazz);
+            log.info("[neptune rpc serializer]: protobuf deserialize end");
+            return target;
+        } catch (Exception e) {
+            log.error("[neptune rpc serializer]: protobuf deserialize occurred error", e);
+            return null;
+        }
+    }
+
+    @Override
+    public ByteBuf serialize(Object source, ByteBufAllocator allocator) {
+        log.info("[neptune rpc serializer]: protobuf serialize start");
+        ByteBuf target = null;
+        try {
+            // 注: 消息长度可以提前计算, 缓冲区只需要分配一次
+            Message message = toMessage(source);
+            target = allocator.ioBuffer(message.getSerializedSize());
+            message.writeTo(new ByteBufOutputStream(target));
+            log.info("[neptune rpc serializer]: protobuf serialize end");
+            return target;
+        } catch (Exception e) {
+            log.error("[neptune rpc serializer]: protobuf serialize occurred error", e);
+            if (Objects.nonNull(target))
+                target.release();
+            return null;
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf source, Class<T> clazz) {
+        log.info("[neptune rpc serializer]: protobuf deserialize start");
+        try {
+            // 注: 直接读取缓冲区的内存, 不复制
+            T target = fromMessage(CodedInputStream.newInstance(source.nioBuffer()), clazz);
+            log.info("[neptune rpc serializer]: protobuf deserialize end");
+            return target;
+        } catch (Exception e) {
+            log.error("[neptune rpc serializer]: protobuf deserialize occurred error", e);
+            return null;
+        }
+    }
+
+    //========================================== 对象 => 消息 ==========================================
+
+    private Message toMessage(Object source){
+        if (source instanceof NeptuneRpcInvocation){
+            return toInvocation((NeptuneRpcInvocation) source);
+        }else if (source instanceof NeptuneRpcResponse){
+            return toResponse((NeptuneRpcResponse) source);
+        }else if (source instanceof Message){
+            return (Message) source;
+        }
+        throw new IllegalArgumentException("[neptune rpc serializer]: protobuf doesn't support type - " + source.getClass().getName());
+    }
+
+    private NeptuneRpcProtobuf.Invocation toInvocation(NeptuneRpcInvocation invocation){
+        NeptuneRpcProtobuf.Invocation.Builder builder = NeptuneRpcProtobuf.Invocation.newBuilder()
+                                                                .setMethodId(invocation.getMethodId());
+        // 注: 精简的调用请求不携带参数类型
+        if (Objects.nonNull(invocation.getServiceName()))
+            builder.setService(invocation.getServiceName());
+        if (Objects.nonNull(invocation.getMethodName()))
+            builder.setMethod(invocation.getMethodName());
+        if (Objects.nonNull(invocation.getTypes())){
+            for (Class<?> type : invocation.getTypes()) {
+                builder.addTypes(type.getName());
+            }
+        }
+        if (Objects.nonNull(invocation.getArgs())){
+            for (Object arg : invocation.getArgs()) {
+                builder.addArgs(toValue(arg));
+            }
+        }
+        if (Objects.nonNull(invocation.getAttachments())){
+            invocation.getAttachments().forEach((key, value) -> builder.putAttachments(key, toValue(value)));
+        }
+        return builder.build();
+    }
+
+    private NeptuneRpcProtobuf.Response toResponse(NeptuneRpcResponse response){
+        NeptuneRpcProtobuf.Response.Builder builder = NeptuneRpcProtobuf.Response.newBuilder()
+                                                              .setCode(response.getCode())
+                                                              .setBody(toValue(response.getBody()));
+        if (Objects.nonNull(response.getMessage()))
+            builder.setMessage(response.getMessage());
+        return builder.build();
+    }
+
+    private NeptuneRpcProtobuf.Value toValue(Object source){
+        NeptuneRpcProtobuf.Value.Builder builder = NeptuneRpcProtobuf.Value.newBuilder();
+        if (Objects.isNull(source)){
+            builder.setNullValue(true);
+        }else if (source instanceof String){
+            builder.setStringValue((String) source);
+        }else if (source instanceof Integer || source instanceof Short || source instanceof Byte){
+            builder.setIntValue(((Number) source).intValue());
+        }else if (source instanceof Character){
+            builder.setIntValue((Character) source);
+        }else if (source instanceof Long){
+            builder.setLongValue((Long) source);
+        }else if (source instanceof Double){
+            builder.setDoubleValue((Double) source);
+        }else if (source instanceof Float){
+            builder.setFloatValue((Float) source);
+        }else if (source instanceof Boolean){
+            builder.setBoolValue((Boolean) source);
+        }else if (source instanceof byte[]){
+            builder.setBytesValue(ByteString.copyFrom((byte[]) source));
+        }else if (source instanceof Message){
+            register((Class<? extends Message>) source.getClass());
+            builder.setMessageValue(Any.pack((Message) source));
+        }else {
+            throw new IllegalArgumentException("[neptune rpc serializer]: protobuf doesn't support type - " + source.getClass().getName());
+        }
+        return builder.build();
+    }
+
+    //========================================== 消息 => 对象 ==========================================
+
+    private <T> T fromMessage(CodedInputStream input, Class<T> clazz) throws IOException {
+        if (NeptuneRpcInvocation.class.equals(clazz)){
+            return (T) fromInvocation(NeptuneRpcProtobuf.Invocation.parseFrom(input));
+        }else if (NeptuneRpcResponse.class.equals(clazz)){
+            return (T) fromResponse(NeptuneRpcProtobuf.Response.parseFrom(input));
+        }else if (Message.class.isAssignableFrom(clazz)){
+            return (T) parser((Class<? extends Message>) clazz).parseFrom(input);
+        }
+        throw new IllegalArgumentException("[neptune rpc serializer]: protobuf doesn't support type - " + clazz.getName());
+    }
+
+    private NeptuneRpcInvocation fromInvocation(NeptuneRpcProtobuf.Invocation message) throws IOException {
+        NeptuneRpcInvocation invocation = new NeptuneRpcInvocation();
+        invocation.setMethodId(message.getMethodId());
+        // 注: proto3 的字符串默认值是空字符串, 需要转换成 null 才能根据方法编号补全
+        if (!message.getService().isEmpty())
+            invocation.setServiceName(message.getService());
+        if (!message.getMethod().isEmpty())
+            invocation.setMethodName(message.getMethod());
+        // 1. 参数类型: 参数中的消息类需要记录下来
+        Class<?>[] types = null;
+        if (message.getTypesCount() > 0){
+            types = new Class<?>[message.getTypesCount()];
+            for (int index = 0; index < types.length; index++) {
+                types[index] = ClassLoaderUtil.loadClass(message.getTypes(index));
+                if (Message.class.isAssignableFrom(types[index]))
+                    register((Class<? extends Message>) types[index]);
+            }
+            invocation.setTypes(types);
+        }
+        // 2. 参数: 如果携带参数类型, 那么把 int 编码的 short、byte、char 转换回来
+        Object[] args = new Object[message.getArgsCount()];
+        for (int index = 0; index < args.length; index++) {
+            Object arg = fromValue(message.getArgs(index));
+            args[index] = Objects.nonNull(types) && index < types.length ? narrow(arg, types[index]) : arg;
+        }
+        invocation.setArgs(args);
+        // 3. 附加信息
+        Map<String, Object> attachments = new HashMap<>(message.getAttachmentsCount() * 2);
+        for (Map.Entry<String, NeptuneRpcProtobuf.Value> entry : message.getAttachmentsMap().entrySet()) {
+            attachments.put(entry.getKey(), fromValue(entry.getValue()));
+        }
+        invocation.setAttachments(attachments);
+        return invocation;
+    }
+
+    private NeptuneRpcResponse fromResponse(NeptuneRpcProtobuf.Response message) throws IOException {
+        NeptuneRpcResponse response = new NeptuneRpcResponse();
+        response.setCode(message.getCode());
+        response.setMessage(message.getMessage());
+        response.setBody(fromValue(message.getBody()));
+        return response;
+    }
+
+    private Object fromValue(NeptuneRpcProtobuf.Value value) throws IOException {
+        switch (value.getKindCase()){
+            case STRING_VALUE:
+                return value.getStringValue();
+            case INT_VALUE:
+                return value.getIntValue();
+            case LONG_VALUE:
+                return value.getLongValue();
+            case DOUBLE_VALUE:
+                return value.getDoubleValue();
+            case FLOAT_VALUE:
+                return value.getFloatValue();
+            case BOOL_VALUE:
+                return value.getBoolValue();
+            case BYTES_VALUE:
+                return value.getBytesValue().toByteArray();
+            case MESSAGE_VALUE:
+                return unpack(value.getMessageValue());
+            default:
+                return null;
+        }
+    }
+
+    private Message unpack(Any any) throws IOException {
+        String typeUrl = any.getTypeUrl();
+        String name = typeUrl.substring(typeUrl.lastIndexOf(TYPE_URL_SEPARATOR) + 1);
+        Class<? extends Message> clazz = messages.get(name);
+        if (Objects.isNull(clazz)){
+            throw new IllegalStateException("[neptune rpc serializer]: protobuf message class isn't registered - " + name);
+        }
+        return any.unpack(clazz);
+    }
+
+    /**
+     * <h3>把 int 编码的参数转换成方法的参数类型</h3>
+     */
+    private static Object narrow(Object arg, Class<?> type){
+        if (!(arg instanceof Integer)){
+            return arg;
+        }
+        int value = (Integer) arg;
+        if (Short.TYPE == type || Short.class == type){
+            return (short) value;
+        }else if (Byte.TYPE == type || Byte.class == type){
+            return (byte) value;
+        }else if (Character.TYPE == type || Character.class == type){
+            return (char) value;
+        }
+        return arg;
+    }
+
+    private Parser<? extends Message> parser(Class<? extends Message> clazz){
+        return parsers.computeIfAbsent(clazz, key -> defaultInstance(clazz).getParserForType());
+    }
+
+    private static Message defaultInstance(Class<? extends Message> clazz){
+        try {
+            return (Message) clazz.getMethod("getDefaultInstance").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("[neptune rpc serializer]: protobuf message class is illegal - " + clazz.getName(), e);
+        }
+    }
+
+}
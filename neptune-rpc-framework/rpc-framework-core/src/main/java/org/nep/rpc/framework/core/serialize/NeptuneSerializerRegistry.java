@@ -0,0 +1,42 @@
+package org.nep.rpc.framework.core.serialize;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <h3>序列化算法注册表: 序列化算法编号 => 序列化算法</h3>
+ * <h3>1. 只有注册过的序列化算法才会被接收: 默认只注册配置的序列化算法, 其他算法需要显式配置接收</h3>
+ * <h3>2. 收到消息时根据协议头中的序列化算法编号反序列化, 响应也采用相同的序列化算法, 客户端和服务端的序列化算法不需要相同</h3>
+ * <h3>注: jdk 等序列化算法会反序列化任意的类, 所以不能因为协议头中的编号就接收没有配置的序列化算法</h3>
+ */
+@Slf4j
+public class NeptuneSerializerRegistry {
+
+    private static final AtomicReferenceArray<INeptuneStreamSerializer> serializers =
+            new AtomicReferenceArray<>(NeptuneSerializerType.values().length);
+
+    /**
+     * <h3>注册序列化算法: 替换相同编号的序列化算法</h3>
+     */
+    public static INeptuneSerializer register(INeptuneSerializer serializer){
+        int code = NeptuneSerializerType.getSerializerCode(serializer);
+        if (code < 0){
+            throw new IllegalArgumentException("[neptune rpc serializer registry]: serializer doesn't have code - " + serializer);
+        }
+        serializers.set(code, INeptuneStreamSerializer.of(serializer));
+        log.info("[neptune rpc serializer registry]: register serializer - code: {}, serializer: {}", code, serializer);
+        return serializer;
+    }
+
+    /**
+     * <h3>根据序列化算法编号获取序列化算法: 如果没有注册, 那么返回 null</h3>
+     */
+    public static INeptuneStreamSerializer getSerializer(byte code){
+        if (code < 0 || code >= serializers.length()){
+            return null;
+        }
+        return serializers.get(code);
+    }
+
+}
@@ -9,7 +9,8 @@ public enum NeptuneSerializerType {
     SERIALIZER_HESSIAN(1, "HessianSerializer"),
     SERIALIZER_GSON(2, "GsonSerializer"),
     SERIALIZER_JACKSON(3, "JackSonSerializer"),
-    SERIALIZER_KRYO(4, "KryoSerializer");
+    SERIALIZER_KRYO(4, "KryoSerializer"),
+    SERIALIZER_PROTOBUF(5, "ProtobufSerializer");
 
     /**
      * <h3>序列化算法编号</h3>
@@ -44,6 +45,8 @@ public enum NeptuneSerializerType {
             return SERIALIZER_HESSIAN.code;
         }else if (serializer instanceof NeptuneGsonSerializer){
             return SERIALIZER_GSON.code;
+        }else if (serializer instanceof NeptuneProtobufSerializer){
+            return SERIALIZER_PROTOBUF.code;
         }
         return -1;
     }
@@ -0,0 +1,122 @@
+package org.nep.rpc.framework.core.server;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h3>服务端业务线程池: 负责执行反序列化、过滤链、服务调用以及序列化, 避免阻塞 Netty 的 I/O 线程</h3>
+ * <h3>1. fixed: 固定数量的线程和有界队列, 队列已满时拒绝请求</h3>
+ * <h3>2. virtual: 每个请求一个虚拟线程, 同时执行的请求数量有上限; 如果 JVM 不支持虚拟线程, 那么退化为 fixed</h3>
+ * <h3>3. direct: 直接在 I/O 线程上执行, 仅适合服务方法非常快的场景</h3>
+ */
+@Slf4j
+public class NeptuneRpcDispatcher {
+
+    public static final String FIXED = "fixed";
+
+    public static final String VIRTUAL = "virtual";
+
+    public static final String DIRECT = "direct";
+
+    /**
+     * <h3>执行请求的线程池: 如果是 direct 模式, 那么为空</h3>
+     */
+    private final ExecutorService executor;
+
+    /**
+     * <h3>虚拟线程模式下限制同时执行的请求数量</h3>
+     */
+    private final Semaphore permits;
+
+    private NeptuneRpcDispatcher(ExecutorService executor, Semaphore permits) {
+        this.executor = executor;
+        this.permits = permits;
+    }
+
+    /**
+     * <h3>根据配置创建业务线程池</h3>
+     */
+    public static NeptuneRpcDispatcher create(String name, String type, int threads, int queues){
+        // 1. 直接在 I/O 线程上执行
+        if (DIRECT.equalsIgnoreCase(type)){
+            log.info("[neptune rpc server dispatcher]: {} dispatcher run on io thread", name);
+            return new NeptuneRpcDispatcher(null, null);
+        }
+        // 2. 虚拟线程: 同时执行的请求数量不超过线程数量和队列长度之和
+        if (VIRTUAL.equalsIgnoreCase(type)){
+            ExecutorService executor = newVirtualThreadExecutor();
+            if (executor != null){
+                log.info("[neptune rpc server dispatcher]: {} dispatcher run on virtual thread, permits: {}", name, threads + queues);
+                return new NeptuneRpcDispatcher(executor, new Semaphore(threads + queues));
+            }
+            log.warn("[neptune rpc server dispatcher]: jvm doesn't support virtual thread, fall back to fixed thread pool");
+        }
+        // 3. 固定数量的线程
+        BlockingQueue<Runnable> queue = queues > 0 ? new ArrayBlockingQueue<>(queues) : new SynchronousQueue<>();
+        ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue,
+                new DefaultThreadFactory("neptune-rpc-" + name, true), new ThreadPoolExecutor.AbortPolicy());
+        log.info("[neptune rpc server dispatcher]: {} dispatcher run on fixed thread pool, threads: {}, queues: {}", name, threads, queues);
+        return new NeptuneRpcDispatcher(executor, null);
+    }
+
+    /**
+     * <h3>执行请求: 如果线程池已满, 那么抛出 RejectedExecutionException</h3>
+     */
+    public void dispatch(Runnable task){
+        if (executor == null){
+            task.run();
+            return;
+        }
+        if (permits == null){
+            executor.execute(task);
+            return;
+        }
+        if (!permits.tryAcquire()){
+            throw new RejectedExecutionException("[neptune rpc server dispatcher]: dispatcher is busy");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * <h3>关闭线程池</h3>
+     */
+    public void shutdown(){
+        if (executor != null){
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * <h3>通过反射创建虚拟线程池: 项目仍然需要兼容 Java 8</h3>
+     */
+    private static ExecutorService newVirtualThreadExecutor(){
+        try {
+            Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package org.nep.rpc.framework.core.server;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.LoaderClassPath;
+import javassist.Modifier;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h3>服务调用器生成器</h3>
+ * <h3>1. 为每个对外暴露的服务生成一个调用器类, 根据方法下标 switch 到对应的方法然后直接调用</h3>
+ * <h3>2. 生成的调用器和服务接口位于相同的包, 通过 Lookup 定义类, 不需要额外开放模块权限</h3>
+ * <h3>3. 如果生成失败, 那么就退化为反射调用</h3>
+ */
+@Slf4j
+public class NeptuneRpcInvokerGenerator {
+
+    private static final AtomicInteger counter = new AtomicInteger(0);
+
+    /**
+     * <h3>生成服务调用器</h3>
+     * @param service 服务接口
+     * @param target 服务实现
+     * @param methods 服务的方法表
+     */
+    public static NeptuneRpcServiceInvoker generate(Class<?> service, Object target, NeptuneRpcMethodTable methods){
+        try {
+            return newInvoker(service, target, methods);
+        } catch (Throwable cause) {
+            log.warn("[neptune rpc invoker generator]: generate invoker fail, fall back to reflection - {}", service.getName(), cause);
+            return reflect(target, methods);
+        }
+    }
+
+    /**
+     * <h3>反射调用器</h3>
+     */
+    public static NeptuneRpcServiceInvoker reflect(Object target, NeptuneRpcMethodTable methods){
+        NeptuneRpcMethod[] table = methods.getMethods();
+        return (index, args) -> {
+            try {
+                return table[index].getMethod().invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        };
+    }
+
+    private static NeptuneRpcServiceInvoker newInvoker(Class<?> service, Object target, NeptuneRpcMethodTable methods) throws Exception {
+        // 1. 创建 Class 对象容器: 注: 需要使用服务接口的类加载器, 否则找不到服务接口
+        ClassPool pool = new ClassPool(true);
+        pool.appendClassPath(new LoaderClassPath(service.getClassLoader()));
+        pool.appendClassPath(new LoaderClassPath(NeptuneRpcServiceInvoker.class.getClassLoader()));
+        // 2. 调用器和服务接口位于相同的包
+        CtClass invoker = pool.makeClass(String.format("%s$NeptuneInvoker%d", service.getName(), counter.getAndIncrement()));
+        invoker.addInterface(pool.get(NeptuneRpcServiceInvoker.class.getName()));
+        invoker.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
+        // 3. 生成服务实现字段
+        invoker.addField(CtField.make("private final " + service.getName() + " target;", invoker));
+        // 4. 生成构造器
+        CtConstructor constructor = new CtConstructor(new CtClass[]{pool.get(Object.class.getName())}, invoker);
+        constructor.setBody("{ $0.target = (" + service.getName() + ") $1; }");
+        constructor.setModifiers(Modifier.PUBLIC);
+        invoker.addConstructor(constructor);
+        // 5. 生成调用方法
+        invoker.addMethod(CtMethod.make(newInvokeMethod(methods), invoker));
+        // 6. 定义调用器类然后创建对象
+        Class<?> clazz = invoker.toClass(service);
+        invoker.detach();
+        log.info("[neptune rpc invoker generator]: generate invoker - {}", clazz.getName());
+        return (NeptuneRpcServiceInvoker) clazz.getConstructor(Object.class).newInstance(target);
+    }
+
+    /**
+     * <h3>生成调用方法: switch 方法下标然后直接调用服务的方法</h3>
+     */
+    private static String newInvokeMethod(NeptuneRpcMethodTable methods){
+        StringBuilder body = new StringBuilder("public Object invoke(int index, Object[] args) throws Throwable { switch ($1) {");
+        for (NeptuneRpcMethod method : methods.getMethods()) {
+            Method target = method.getMethod();
+            body.append(" case ").append(method.getIndex()).append(": ");
+            StringBuilder call = new StringBuilder("target.").append(target.getName()).append("(");
+            Class<?>[] types = method.getTypes();
+            for (int idx = 0; idx < types.length; idx++) {
+                if (idx > 0)
+                    call.append(", ");
+                call.append(asParameter(types[idx], "$2[" + idx + "]"));
+            }
+            call.append(")");
+            // 注: 无返回值的方法返回 null, 基本类型的返回值需要装箱
+            if (Void.TYPE.equals(target.getReturnType())){
+                body.append(call).append("; return null;");
+            }else{
+                body.append("return ($w) ").append(call).append(";");
+            }
+        }
+        body.append(" default: throw new IllegalArgumentException(\"[neptune rpc invoker]: method index doesn't exist - \" + $1); } }");
+        return body.toString();
+    }
+
+    /**
+     * <h3>把 Object 参数转换成方法的参数类型</h3>
+     */
+    private static String asParameter(Class<?> type, String variable){
+        if (!type.isPrimitive()){
+            return "(" + typeName(type) + ") " + variable;
+        }
+        if (Boolean.TYPE == type){
+            return "((Boolean) " + variable + ").booleanValue()";
+        }else if (Integer.TYPE == type){
+            return "((Integer) " + variable + ").intValue()";
+        }else if (Long.TYPE == type){
+            return "((Long) " + variable + ").longValue()";
+        }else if (Double.TYPE == type){
+            return "((Double) " + variable + ").doubleValue()";
+        }else if (Float.TYPE == type){
+            return "((Float) " + variable + ").floatValue()";
+        }else if (Short.TYPE == type){
+            return "((Short) " + variable + ").shortValue()";
+        }else if (Byte.TYPE == type){
+            return "((Byte) " + variable + ").byteValue()";
+        }else {
+            return "((Character) " + variable + ").charValue()";
+        }
+    }
+
+    /**
+     * <h3>获取源码中的类型名称: 数组类型需要转换成 Type[] 的形式</h3>
+     */
+    private static String typeName(Class<?> type){
+        StringBuilder suffix = new StringBuilder();
+        while (type.isArray()){
+            suffix.append("[]");
+            type = type.getComponentType();
+        }
+        return type.getName() + suffix;
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.nep.rpc.framework.core.server;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.nep.rpc.framework.core.common.util.NeptuneUtil;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * <h3>服务对外暴露的方法: 注册服务时解析, 调用时不再需要获取反射信息</h3>
+ */
+@Getter
+@ToString(of = {"index", "id", "serviceName", "signature"})
+public class NeptuneRpcMethod {
+
+    /**
+     * <h3>方法在方法表中的下标</h3>
+     */
+    private final int index;
+
+    /**
+     * <h3>方法所属的服务名</h3>
+     */
+    private final String serviceName;
+
+    /**
+     * <h3>方法签名: 方法名(参数类型, ...)</h3>
+     */
+    private final String signature;
+
+    /**
+     * <h3>方法编号: 客户端可以只传输方法编号</h3>
+     */
+    private final int id;
+
+    /**
+     * <h3>反射调用的方法</h3>
+     */
+    private final Method method;
+
+    /**
+     * <h3>参数类型: 注: Method.getParameterTypes 每次都会复制数组, 所以提前保存</h3>
+     */
+    private final Class<?>[] types;
+
+    public NeptuneRpcMethod(int index, String serviceName, Method method) {
+        this.index = index;
+        this.serviceName = serviceName;
+        this.method = method;
+        this.types = method.getParameterTypes();
+        this.signature = NeptuneUtil.getMethodSignature(method);
+        this.id = NeptuneUtil.getMethodId(serviceName, method);
+        this.method.setAccessible(true);
+    }
+
+    /**
+     * <h3>判断调用的参数类型是否和方法一致</h3>
+     */
+    public boolean matches(Class<?>[] types){
+        // 注: 无参方法的调用可能不携带参数类型
+        if (types == null){
+            return this.types.length == 0;
+        }
+        return Arrays.equals(this.types, types);
+    }
+
+}
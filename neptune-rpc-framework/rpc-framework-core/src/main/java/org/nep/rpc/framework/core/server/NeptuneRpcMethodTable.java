@@ -0,0 +1,64 @@
+package org.nep.rpc.framework.core.server;
+
+import lombok.Getter;
+import org.nep.rpc.framework.core.common.util.NeptuneUtil;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h3>服务的方法表: 注册服务时根据接口生成, 调用时直接查表</h3>
+ * <h3>1. 方法按照签名排序, 相同接口生成的方法表下标一定相同</h3>
+ * <h3>2. 方法名 => 同名的所有方法: 通常只有一个, 重载方法再比较参数类型</h3>
+ */
+public class NeptuneRpcMethodTable {
+
+    /**
+     * <h3>按照签名排序的所有方法</h3>
+     */
+    @Getter
+    private final NeptuneRpcMethod[] methods;
+
+    private final Map<String, NeptuneRpcMethod[]> names;
+
+    public NeptuneRpcMethodTable(Class<?> service) {
+        // 1. 获取接口中所有的抽象方法然后按照签名排序
+        Method[] declared = Arrays.stream(service.getMethods())
+                                    .filter(method -> !Modifier.isStatic(method.getModifiers()))
+                                    .sorted(Comparator.comparing(NeptuneUtil::getMethodSignature))
+                                    .toArray(Method[]::new);
+        // 2. 生成方法表
+        this.methods = new NeptuneRpcMethod[declared.length];
+        Map<String, List<NeptuneRpcMethod>> overloads = new HashMap<>();
+        for (int index = 0; index < declared.length; index++) {
+            methods[index] = new NeptuneRpcMethod(index, service.getName(), declared[index]);
+            overloads.computeIfAbsent(declared[index].getName(), key -> new ArrayList<>()).add(methods[index]);
+        }
+        // 3. 生成方法名索引
+        this.names = new HashMap<>(overloads.size() * 2);
+        overloads.forEach((name, candidates) -> names.put(name, candidates.toArray(new NeptuneRpcMethod[0])));
+    }
+
+    /**
+     * <h3>根据方法名和参数类型查找方法: 如果不存在, 那么返回 null</h3>
+     */
+    public NeptuneRpcMethod lookup(String name, Class<?>[] types){
+        NeptuneRpcMethod[] candidates = names.get(name);
+        if (candidates == null){
+            return null;
+        }
+        for (NeptuneRpcMethod candidate : candidates) {
+            if (candidate.matches(types)){
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+}
@@ -9,12 +9,15 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.nep.rpc.framework.core.common.cache.NeptuneRpcServerCache;
 import org.nep.rpc.framework.core.common.config.NeptuneRpcServerConfig;
+import org.nep.rpc.framework.core.common.constant.Protocol;
 import org.nep.rpc.framework.core.common.constant.ServerConfig;
+import org.nep.rpc.framework.core.compress.NeptuneCompressorType;
 import org.nep.rpc.framework.core.common.resource.PropertyBootStrap;
 import org.nep.rpc.framework.core.filter.chain.NeptuneServerFilter;
 import org.nep.rpc.framework.core.filter.server.NeptuneServerLogFilter;
@@ -57,6 +60,11 @@ public class NeptuneRpcServer {
      */
     private ServerBootstrap server;
 
+    /**
+     * <h3>业务线程池</h3>
+     */
+    private NeptuneRpcDispatcher dispatcher;
+
     /**
      * <h3>配置类</h3>
      */
@@ -83,6 +91,17 @@ public class NeptuneRpcServer {
         // 2. 初始化事件循环组
         boss = new NioEventLoopGroup(ServerConfig.BOSS_THREAD_COUNT);
         worker = new NioEventLoopGroup(ServerConfig.WORKER_THREAD_COUNT);
+        // 注: 初始化业务线程池, 服务调用不在 I/O 线程上执行
+        dispatcher = NeptuneRpcDispatcher.create("server-business",
+                Objects.isNull(config.getDispatchType()) ? NeptuneRpcDispatcher.FIXED : config.getDispatchType(),
+                Objects.isNull(config.getDispatchThreads()) ? ServerConfig.DISPATCH_THREAD_COUNT : config.getDispatchThreads(),
+                Objects.isNull(config.getDispatchQueues()) ? ServerConfig.DISPATCH_QUEUE_SIZE : config.getDispatchQueues());
+        // 注: 初始化响应的压缩算法、分片大小以及数据包最大长度
+        NeptuneCompressorType compressor = Objects.isNull(config.getCompressor()) ? NeptuneCompressorType.COMPRESSOR_NONE : config.getCompressor();
+        int compressThreshold = Objects.isNull(config.getCompressThreshold()) ? Protocol.COMPRESS_THRESHOLD : config.getCompressThreshold();
+        int maxFrameLength = Objects.isNull(config.getMaxFrameLength()) ? Protocol.MAX_FRAME_LENGTH : config.getMaxFrameLength();
+        int chunkSize = Objects.isNull(config.getChunkSize()) ? Protocol.CHUNK_SIZE : config.getChunkSize();
+        int maxMessageLength = Objects.isNull(config.getMaxMessageLength()) ? Protocol.MAX_MESSAGE_LENGTH : config.getMaxMessageLength();
         // 3. 配置参数
         server.option(ChannelOption.TCP_NODELAY, true)  // 2.1 禁用 Nagle 算法
                 .option(ChannelOption.SO_BACKLOG, ServerConfig.BACK_LOG_SIZE) // 2.2 服务器端是单线程处理, 所以会有等待队列
@@ -100,11 +119,13 @@ public class NeptuneRpcServer {
                         protected void initChannel(NioSocketChannel channel) throws Exception {
                             // 6. 添加处理器
                             channel.pipeline().addLast(new LoggingHandler(LogLevel.INFO));
-                            channel.pipeline().addLast(new NeptuneRpcFrameDecoder()); // 6.1 定长解码器 防止黏包和半包问题
-                            channel.pipeline().addLast(new NeptuneRpcEncoder()); // 6.2 编码器
-                            channel.pipeline().addLast(new NeptuneRpcDecoder()); // 6.3 解码器
+                            channel.pipeline().addLast(new FlushConsolidationHandler(
+                                    FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, true)); // 注: 合并响应的 flush
+                            channel.pipeline().addLast(new NeptuneRpcFrameDecoder(maxFrameLength)); // 6.1 定长解码器 防止黏包和半包问题
+                            channel.pipeline().addLast(new NeptuneRpcEncoder(compressor, compressThreshold, chunkSize)); // 6.2 编码器
+                            channel.pipeline().addLast(new NeptuneRpcDecoder(maxMessageLength)); // 6.3 解码器
                             // TODO 考虑之后重构成 Codec
-                            channel.pipeline().addLast(new NeptuneRpcServerHandler());
+                            channel.pipeline().addLast(new NeptuneRpcServerHandler(dispatcher));
                         }
                     });
             future = server.bind(new InetSocketAddress(config.getPort())).sync();
@@ -123,6 +144,11 @@ public class NeptuneRpcServer {
         try {
             worker.shutdownGracefully();
             boss.shutdownGracefully();
+            dispatcher.shutdown();
+            NeptuneRpcServerCache.Service.getServices().forEach(wrapper -> {
+                if (Objects.nonNull(wrapper.getDispatcher()))
+                    wrapper.getDispatcher().shutdown();
+            });
             future.channel().close().sync();
             // TODO 对外提供的服务都应该下线
             future.channel().close();
@@ -155,6 +181,15 @@ public class NeptuneRpcServer {
             log.error("[neptune rpc server]: export service implements multiple interfaces");
             return;
         }
+        // 2. 生成服务的方法表: 调用时直接查表, 不再需要遍历反射获取的方法
+        wrapper.setMethods(new NeptuneRpcMethodTable(interfaces[0]));
+        // 注: 生成服务调用器, 调用时直接调用服务的方法, 不再经过反射
+        wrapper.setInvoker(NeptuneRpcInvokerGenerator.generate(interfaces[0], target, wrapper.getMethods()));
+        // 注: 如果服务配置了独占的业务线程, 那么就为服务创建隔离的线程池
+        if (wrapper.getThreads() > 0 && Objects.isNull(wrapper.getDispatcher())){
+            wrapper.setDispatcher(NeptuneRpcDispatcher.create("service-" + interfaces[0].getSimpleName(),
+                    NeptuneRpcDispatcher.FIXED, wrapper.getThreads(), wrapper.getQueues()));
+        }
         // 3. 将每个服务端提供的所有接口-实现类全部保存在哈希表中: key: interface value: service 包装类
         NeptuneRpcServerCache.Service.registerService(interfaces[0].getName(), wrapper);
         // 4. 将每个服务端提供的所有接口全部转换成对应的地址然后异步注册到注册中心
@@ -0,0 +1,17 @@
+package org.nep.rpc.framework.core.server;
+
+/**
+ * <h3>服务调用器: 根据方法表中的下标调用服务的方法</h3>
+ * <h3>注: 默认由 NeptuneRpcInvokerGenerator 生成字节码实现, 直接调用服务的方法, 不再经过反射</h3>
+ */
+public interface NeptuneRpcServiceInvoker {
+
+    /**
+     * <h3>调用服务的方法</h3>
+     * @param index 方法在方法表中的下标
+     * @param args 方法参数
+     * @return 方法返回值: 基本类型会被装箱, 无返回值的方法返回 null
+     */
+    Object invoke(int index, Object[] args) throws Throwable;
+
+}
@@ -30,4 +30,32 @@ public class NeptuneServiceWrapper {
      */
     private int limit = 10;
 
+    /**
+     * <h3>服务独占的业务线程数量: 如果为 0, 那么使用服务端共享的业务线程池</h3>
+     */
+    private int threads = 0;
+
+    /**
+     * <h3>服务独占的业务线程池队列长度</h3>
+     */
+    private int queues = 0;
+
+    /**
+     * <h3>服务独占的业务线程池: 注册服务时创建, 慢服务不会耗尽其他服务的线程</h3>
+     */
+    @ToString.Exclude
+    private NeptuneRpcDispatcher dispatcher;
+
+    /**
+     * <h3>服务的方法表: 注册服务时生成</h3>
+     */
+    @ToString.Exclude
+    private NeptuneRpcMethodTable methods;
+
+    /**
+     * <h3>服务调用器: 注册服务时生成</h3>
+     */
+    @ToString.Exclude
+    private NeptuneRpcServiceInvoker invoker;
+
 }
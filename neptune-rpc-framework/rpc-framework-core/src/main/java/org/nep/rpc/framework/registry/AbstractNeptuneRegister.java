@@ -40,4 +40,9 @@ public abstract class AbstractNeptuneRegister implements
 
     public abstract List<String> lookup(String serviceName);
 
+    /**
+     * <h3>查询服务端结点的数据: 如果结点不存在, 那么返回 null</h3>
+     */
+    public abstract String lookupData(String serviceName, String provider);
+
 }
@@ -110,6 +110,14 @@ public class NeptuneZookeeperRegistry extends AbstractNeptuneRegister {
         return zookeeperClient.getChildrenNode(path);
     }
 
+    /**
+     * <h3>查询服务端结点的数据</h3>
+     */
+    @Override
+    public String lookupData(String serviceName, String provider) {
+        return zookeeperClient.getNodeData(Separator.SLASH + serviceName + PROVIDER + Separator.SLASH + provider);
+    }
+
     /**
      * <h3>服务订阅的前置处理: 钩子函数</h3>
      */
@@ -38,7 +38,7 @@ public class ChildrenNodeListener implements PathChildrenCacheListener {
         // 4. 处理事件
         if (PathChildrenCacheEvent.Type.CHILD_ADDED.equals(type)){
             // 5. 如果发生的是新增事件, 那么就调用新增事件处理器
-            handleChildAddEvent(serviceName, nodeName);
+            handleChildAddEvent(serviceName, nodeName, data);
         }else if (PathChildrenCacheEvent.Type.CHILD_UPDATED.equals(type)){
             // 6. 如果发生的是结点更新事件, 那么就调用更新事件处理器
             handleChildUpdateEvent(serviceName, nodeName, data);
@@ -53,10 +53,10 @@ public class ChildrenNodeListener implements PathChildrenCacheListener {
     /**
      * <h3>处理子结点新增事件: 服务发现</h3>
      */
-    private void handleChildAddEvent(String serviceName, String nodeName){
+    private void handleChildAddEvent(String serviceName, String nodeName, String data){
         log.info("[neptune rpc zookeeper watcher children listener]: watcher add event handle start");
         // TODO 建立连接后应该考虑将连接放入缓存中
-        NeptuneRpcConnectionHandler.connect(serviceName, nodeName);
+        NeptuneRpcConnectionHandler.connect(serviceName, nodeName, data);
         // 注: 新增的子结点不需要去监听, 只需要通过当前这个父结点就可以监听到
         log.info("[neptune rpc zookeeper watcher children listener]: watcher add event handle successfully");
     }
@@ -1,17 +1,13 @@
 package org.nep.rpc.framework.registry.core.server.zookeeper.listener;
 
-import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.StrUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.CuratorCacheListenerBuilder;
-import org.nep.rpc.framework.core.client.NeptuneRpcInvoker;
 import org.nep.rpc.framework.core.common.cache.NeptuneRpcClientCache;
 import org.nep.rpc.framework.core.common.constant.Separator;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Collections;
-import java.util.List;
 
 /**
  * <h3>监听根结点</h3>
@@ -23,6 +19,17 @@ public class NodeChangeListener implements CuratorCacheListenerBuilder.ChangeLis
 
     private static final int nodeNameIndex = 3;
 
+    private static final int nodePartitionLength = 3;
+
+    private static final int addressIndex = 1;
+
+    private static final int portIndex = 2;
+
+    /**
+     * <h3>结点数据的格式是 应用名;服务名;IP 地址;端口号;权重;时间戳[;分组]</h3>
+     */
+    private static final int weightIndex = 4;
+
     @Override
     public void event(ChildData old, ChildData cur) {
         // 1. 获取变更后的数据和路径
@@ -36,17 +43,17 @@ public class NodeChangeListener implements CuratorCacheListenerBuilder.ChangeLis
             log.error("[neptune rpc zookeeper watcher node listener] service name or node name is null");
             return;
         }
-        List<NeptuneRpcInvoker> providers = NeptuneRpcClientCache.Connection.providers(serviceName);
-        if (CollectionUtil.isEmpty(providers)){
-            log.error("[neptune rpc zookeeper watcher node listener] provider list is empty");
+        // 3. 结点名称的格式是 应用名:IP 地址:端口号, 根据 IP 地址 + 端口号直接查找需要更新的服务端
+        String[] partitions = nodeName.split(Separator.COLON);
+        if (partitions.length != nodePartitionLength){
+            log.error("[neptune rpc zookeeper watcher node listener] node name pattern is error - {}", nodeName);
             return;
         }
-        // 3. 判断哪个是需要更新的
-        for (NeptuneRpcInvoker provider : providers) {
-            if (nodeName.equals(provider.getAddress() + Separator.COLON + provider.getPort())){
-                provider.setFixedWeight(Integer.parseInt(curData.split(Separator.SEMICOLON)[5]));
-            }
-            provider.setDynamicWeight(provider.getFixedWeight());
+        String endpoint = partitions[addressIndex] + Separator.COLON + partitions[portIndex];
+        // 4. 更新服务端的权重
+        int weight = Integer.parseInt(curData.split(Separator.SEMICOLON)[weightIndex]);
+        if (!NeptuneRpcClientCache.Connection.reweight(serviceName, endpoint, weight)){
+            log.error("[neptune rpc zookeeper watcher node listener] provider doesn't exist - {}", nodeName);
         }
 
     }
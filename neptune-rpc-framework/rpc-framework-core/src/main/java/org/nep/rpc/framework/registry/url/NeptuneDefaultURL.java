@@ -45,14 +45,18 @@ public class NeptuneDefaultURL implements NeptuneURL {
 
     /**
      * <h3>消费者和提供者的路径对象转换为字符串数据</h3>
+     * <h3>格式: 应用名;服务名;IP 地址;端口号;权重;时间戳[;分组]</h3>
+     * <h3>注: 分组追加在最后, 只读取前面字段的旧版本客户端不受影响</h3>
      */
     public String toString(){
-        return applicationName + Separator.SEMICOLON
+        String data = applicationName + Separator.SEMICOLON
                        + serviceName + Separator.SEMICOLON
                        + address + Separator.SEMICOLON
                        + port + Separator.SEMICOLON
                        + weight + Separator.SEMICOLON
                        + System.currentTimeMillis();
+        Object group = params.get(NeptuneURL.group);
+        return group == null ? data : data + Separator.SEMICOLON + group;
     }
 
     /**
@@ -0,0 +1,165 @@
+package rpc;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nep.rpc.framework.core.common.constant.Protocol;
+import org.nep.rpc.framework.core.compress.NeptuneCompressorType;
+import org.nep.rpc.framework.core.handler.NeptuneRpcDecoder;
+import org.nep.rpc.framework.core.handler.NeptuneRpcEncoder;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcFrameDecoder;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcProtocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>编解码器测试: 编码器 => 定长解码器 => 解码器</h3>
+ */
+@Slf4j
+public class NeptuneRpcCodecTest {
+
+    /**
+     * <h3>协议头中压缩算法字段的下标: 魔数 7B + 版本号 1B + 序列化算法 1B</h3>
+     */
+    private static final int COMPRESSOR_INDEX = Protocol.MAGIC_BYTES.length + 2;
+
+    /**
+     * <h3>测试分片时采用的分片大小</h3>
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    @Test
+    @DisplayName("不压缩的消息体编码之后可以解码出相同的消息体")
+    public void plainRoundTripTest() {
+        roundTrip(NeptuneCompressorType.COMPRESSOR_NONE, 16);
+        roundTrip(NeptuneCompressorType.COMPRESSOR_NONE, 64 * 1024);
+    }
+
+    @Test
+    @DisplayName("压缩的消息体编码之后可以解码出相同的消息体")
+    public void compressedRoundTripTest() {
+        roundTrip(NeptuneCompressorType.COMPRESSOR_DEFLATE, 64 * 1024);
+        roundTrip(NeptuneCompressorType.COMPRESSOR_SNAPPY, 64 * 1024);
+    }
+
+    @Test
+    @DisplayName("超过分片大小的消息体拆分成多个分片, 解码器重组出相同的消息体")
+    public void chunkRoundTripTest() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new NeptuneRpcEncoder(NeptuneCompressorType.COMPRESSOR_NONE, Protocol.COMPRESS_THRESHOLD, CHUNK_SIZE));
+        EmbeddedChannel decoder = new EmbeddedChannel(new NeptuneRpcFrameDecoder(), new NeptuneRpcDecoder());
+        byte[] payload = NeptuneRpcCompressorTest.payload(CHUNK_SIZE * 4 + 1);
+        assertTrue(encoder.writeOutbound(new NeptuneRpcProtocol(1L, Unpooled.wrappedBuffer(payload))));
+        List<ByteBuf> frames = frames(encoder);
+        assertEquals(5, frames.size());
+        // 注: 最后一个分片到达之前不会交给处理器
+        for (int index = 0; index < frames.size() - 1; index++) {
+            assertFalse(decoder.writeInbound(frames.get(index)));
+        }
+        assertTrue(decoder.writeInbound(frames.get(frames.size() - 1)));
+        assertContent(decoder.readInbound(), 1L, payload);
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    @DisplayName("不同请求的分片交错到达时按照请求序列号分别重组")
+    public void interleavedChunkTest() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new NeptuneRpcEncoder(NeptuneCompressorType.COMPRESSOR_NONE, Protocol.COMPRESS_THRESHOLD, CHUNK_SIZE));
+        EmbeddedChannel decoder = new EmbeddedChannel(new NeptuneRpcFrameDecoder(), new NeptuneRpcDecoder());
+        byte[] first = NeptuneRpcCompressorTest.payload(CHUNK_SIZE * 3);
+        byte[] second = NeptuneRpcCompressorTest.payload(CHUNK_SIZE * 2);
+        encoder.writeOutbound(new NeptuneRpcProtocol(1L, Unpooled.wrappedBuffer(first)));
+        List<ByteBuf> firstFrames = frames(encoder);
+        encoder.writeOutbound(new NeptuneRpcProtocol(2L, Unpooled.wrappedBuffer(second)));
+        List<ByteBuf> secondFrames = frames(encoder);
+        assertEquals(3, firstFrames.size());
+        assertEquals(2, secondFrames.size());
+        // 1. 两个请求的分片交替写入解码器: 第二个请求先收到最后一个分片
+        for (int index = 0; index < firstFrames.size(); index++) {
+            decoder.writeInbound(firstFrames.get(index));
+            if (index < secondFrames.size()){
+                decoder.writeInbound(secondFrames.get(index));
+            }
+        }
+        // 2. 按照重组完成的顺序交给处理器
+        assertContent(decoder.readInbound(), 2L, second);
+        assertContent(decoder.readInbound(), 1L, first);
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    @DisplayName("分片重组之后的消息体超过上限时拒绝")
+    public void tooLongMessageTest() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new NeptuneRpcEncoder(NeptuneCompressorType.COMPRESSOR_NONE, Protocol.COMPRESS_THRESHOLD, CHUNK_SIZE));
+        EmbeddedChannel decoder = new EmbeddedChannel(new NeptuneRpcFrameDecoder(), new NeptuneRpcDecoder(CHUNK_SIZE * 2));
+        encoder.writeOutbound(new NeptuneRpcProtocol(1L, Unpooled.wrappedBuffer(NeptuneRpcCompressorTest.payload(CHUNK_SIZE * 3))));
+        List<ByteBuf> frames = frames(encoder);
+        assertEquals(3, frames.size());
+        assertFalse(decoder.writeInbound(frames.get(0)));
+        assertFalse(decoder.writeInbound(frames.get(1)));
+        assertThrows(TooLongFrameException.class, () -> decoder.writeInbound(frames.get(2)));
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    @DisplayName("压缩的消息体解压之后超过上限时拒绝")
+    public void tooLongDecompressedTest() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new NeptuneRpcEncoder(NeptuneCompressorType.COMPRESSOR_DEFLATE, Protocol.COMPRESS_THRESHOLD, Protocol.CHUNK_SIZE));
+        EmbeddedChannel decoder = new EmbeddedChannel(new NeptuneRpcFrameDecoder(), new NeptuneRpcDecoder(CHUNK_SIZE * 2));
+        encoder.writeOutbound(new NeptuneRpcProtocol(1L, Unpooled.wrappedBuffer(new byte[CHUNK_SIZE * 64])));
+        List<ByteBuf> frames = frames(encoder);
+        assertEquals(1, frames.size());
+        assertThrows(TooLongFrameException.class, () -> decoder.writeInbound(frames.get(0)));
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    private static void roundTrip(NeptuneCompressorType compressor, int length) {
+        EmbeddedChannel encoder = new EmbeddedChannel(new NeptuneRpcEncoder(compressor, Protocol.COMPRESS_THRESHOLD, Protocol.CHUNK_SIZE));
+        EmbeddedChannel decoder = new EmbeddedChannel(new NeptuneRpcFrameDecoder(), new NeptuneRpcDecoder());
+        byte[] payload = NeptuneRpcCompressorTest.payload(length);
+        // 1. 编码
+        assertTrue(encoder.writeOutbound(new NeptuneRpcProtocol(1L, Unpooled.wrappedBuffer(payload))));
+        List<ByteBuf> frames = frames(encoder);
+        assertEquals(1, frames.size());
+        assertEquals(compressor.getCode(), frames.get(0).getByte(COMPRESSOR_INDEX));
+        // 2. 解码
+        frames.forEach(decoder::writeInbound);
+        assertContent(decoder.readInbound(), 1L, payload);
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    private static void assertContent(NeptuneRpcProtocol protocol, long requestId, byte[] payload){
+        assertNotNull(protocol);
+        try {
+            assertEquals(requestId, protocol.getRequestId());
+            assertEquals(Unpooled.wrappedBuffer(payload), protocol.getContent());
+        } finally {
+            protocol.release();
+        }
+    }
+
+    /**
+     * <h3>读取编码器写出的所有数据包: 组合缓冲区复制成连续的缓冲区, 模拟从网络中读取</h3>
+     */
+    static List<ByteBuf> frames(EmbeddedChannel encoder){
+        List<ByteBuf> frames = new ArrayList<>();
+        ByteBuf frame;
+        while ((frame = encoder.readOutbound()) != null){
+            frames.add(Unpooled.copiedBuffer(frame));
+            frame.release();
+        }
+        return frames;
+    }
+
+}
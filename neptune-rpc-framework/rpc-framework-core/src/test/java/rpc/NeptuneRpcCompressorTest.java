@@ -0,0 +1,93 @@
+package rpc;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.TooLongFrameException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nep.rpc.framework.core.common.constant.Protocol;
+import org.nep.rpc.framework.core.compress.INeptuneCompressor;
+import org.nep.rpc.framework.core.compress.NeptuneCompressorType;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>压缩算法测试: 消息体超过 Snappy 单块上限 32767 字节时依然可以正确压缩和解压</h3>
+ */
+@Slf4j
+public class NeptuneRpcCompressorTest {
+
+    private static final ByteBufAllocator ALLOCATOR = ByteBufAllocator.DEFAULT;
+
+    @Test
+    @DisplayName("deflate 压缩之后可以解压出相同的消息体")
+    public void deflateRoundTripTest() throws Exception {
+        roundTrip(NeptuneCompressorType.COMPRESSOR_DEFLATE.getCompressor(), 64 * 1024);
+        roundTrip(NeptuneCompressorType.COMPRESSOR_DEFLATE.getCompressor(), 1024 * 1024 + 7);
+    }
+
+    @Test
+    @DisplayName("snappy 压缩之后可以解压出相同的消息体")
+    public void snappyRoundTripTest() throws Exception {
+        roundTrip(NeptuneCompressorType.COMPRESSOR_SNAPPY.getCompressor(), Short.MAX_VALUE);
+        roundTrip(NeptuneCompressorType.COMPRESSOR_SNAPPY.getCompressor(), 64 * 1024);
+        roundTrip(NeptuneCompressorType.COMPRESSOR_SNAPPY.getCompressor(), 1024 * 1024 + 7);
+    }
+
+    @Test
+    @DisplayName("deflate 解压后的长度超过上限时拒绝")
+    public void deflateLimitTest() throws Exception {
+        rejectTooLong(NeptuneCompressorType.COMPRESSOR_DEFLATE.getCompressor());
+    }
+
+    @Test
+    @DisplayName("snappy 解压后的长度超过上限时拒绝")
+    public void snappyLimitTest() throws Exception {
+        rejectTooLong(NeptuneCompressorType.COMPRESSOR_SNAPPY.getCompressor());
+    }
+
+    private static void roundTrip(INeptuneCompressor compressor, int length) throws Exception {
+        ByteBuf source = Unpooled.wrappedBuffer(payload(length));
+        ByteBuf compressed = compressor.compress(source, ALLOCATOR);
+        ByteBuf decompressed = compressor.decompress(compressed, ALLOCATOR, Protocol.MAX_MESSAGE_LENGTH);
+        try {
+            log.debug("length: {}, compressed: {}", length, compressed.readableBytes());
+            assertTrue(compressed.readableBytes() < length);
+            assertEquals(source, decompressed);
+            // 注: 压缩和解压都不会修改传入的缓冲区
+            assertEquals(length, source.readableBytes());
+        } finally {
+            source.release();
+            compressed.release();
+            decompressed.release();
+        }
+    }
+
+    private static void rejectTooLong(INeptuneCompressor compressor) throws Exception {
+        ByteBuf source = Unpooled.wrappedBuffer(new byte[1024 * 1024]);
+        ByteBuf compressed = compressor.compress(source, ALLOCATOR);
+        try {
+            assertThrows(TooLongFrameException.class, () -> compressor.decompress(compressed, ALLOCATOR, 64 * 1024));
+        } finally {
+            source.release();
+            compressed.release();
+        }
+    }
+
+    /**
+     * <h3>生成可以压缩的消息体: 重复的单词加上随机的数字</h3>
+     */
+    static byte[] payload(int length){
+        Random random = new Random(length);
+        StringBuilder builder = new StringBuilder(length + 16);
+        while (builder.length() < length){
+            builder.append("neptune-").append(random.nextInt(1000)).append(';');
+        }
+        return builder.substring(0, length).getBytes();
+    }
+
+}
@@ -39,7 +39,7 @@ public class NeptuneRpcFrameworkTest
         invocation.setArgs(null);
         invocation.setMethodName(null);
         invocation.setServiceName(null);
-        invocation.setUuid(RandomUtil.randomNumbers(6));
+        invocation.setRequestId(RandomUtil.randomLong());
     }
 
     @Test
@@ -0,0 +1,81 @@
+package rpc;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nep.rpc.framework.core.client.NeptuneRpcInvoker;
+import org.nep.rpc.framework.core.client.NeptuneRpcInvokerSnapshot;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>服务端快照测试: 快照不可变, 分组和服务端地址的子快照在生成时就划分好</h3>
+ */
+@Slf4j
+public class NeptuneRpcInvokerSnapshotTest {
+
+    @Test
+    @DisplayName("添加和移除服务端时生成新的快照, 旧的快照不变")
+    public void immutableTest() {
+        NeptuneRpcInvoker first = invoker("127.0.0.1", 8001, null);
+        NeptuneRpcInvoker second = invoker("127.0.0.1", 8002, null);
+        NeptuneRpcInvokerSnapshot one = NeptuneRpcInvokerSnapshot.EMPTY.with("127.0.0.1:8001", first);
+        NeptuneRpcInvokerSnapshot two = one.with("127.0.0.1:8002", second);
+        assertNotSame(one, two);
+        assertEquals(Collections.singletonList(first), one.getInvokers());
+        assertEquals(Arrays.asList(first, second), two.getInvokers());
+        assertThrows(UnsupportedOperationException.class, () -> two.getInvokers().add(first));
+        // 注: 移除最后一个服务端之后就是空快照
+        assertEquals(Collections.singletonList(second), two.without("127.0.0.1:8001").getInvokers());
+        assertSame(NeptuneRpcInvokerSnapshot.EMPTY, one.without("127.0.0.1:8001"));
+        assertTrue(NeptuneRpcInvokerSnapshot.EMPTY.isEmpty());
+    }
+
+    @Test
+    @DisplayName("按照分组划分子快照, 没有分组的服务端属于默认分组")
+    public void groupTest() {
+        NeptuneRpcInvoker gray = invoker("127.0.0.1", 8001, "gray");
+        NeptuneRpcInvoker grayOther = invoker("127.0.0.1", 8002, "gray");
+        NeptuneRpcInvoker stable = invoker("127.0.0.1", 8003, null);
+        NeptuneRpcInvokerSnapshot snapshot = NeptuneRpcInvokerSnapshot.EMPTY
+                                                     .with("127.0.0.1:8001", gray)
+                                                     .with("127.0.0.1:8002", grayOther)
+                                                     .with("127.0.0.1:8003", stable);
+        assertEquals(Arrays.asList(gray, grayOther), snapshot.group("gray").getInvokers());
+        assertEquals(Collections.singletonList(stable), snapshot.group(NeptuneRpcInvokerSnapshot.DEFAULT_GROUP).getInvokers());
+        assertSame(NeptuneRpcInvokerSnapshot.EMPTY, snapshot.group("missing"));
+        // 注: 子快照在生成快照时就已经划分好, 每次获取的都是同一个对象
+        assertSame(snapshot.group("gray"), snapshot.group("gray"));
+    }
+
+    @Test
+    @DisplayName("所有服务端都属于同一个分组时子快照就是自己")
+    public void singleGroupTest() {
+        NeptuneRpcInvokerSnapshot snapshot = NeptuneRpcInvokerSnapshot.EMPTY
+                                                     .with("127.0.0.1:8001", invoker("127.0.0.1", 8001, "gray"))
+                                                     .with("127.0.0.1:8002", invoker("127.0.0.1", 8002, "gray"));
+        assertSame(snapshot, snapshot.group("gray"));
+        assertSame(NeptuneRpcInvokerSnapshot.EMPTY, snapshot.group(NeptuneRpcInvokerSnapshot.DEFAULT_GROUP));
+    }
+
+    @Test
+    @DisplayName("按照服务端地址划分子快照")
+    public void directTest() {
+        NeptuneRpcInvoker first = invoker("127.0.0.1", 8001, null);
+        NeptuneRpcInvoker second = invoker("127.0.0.1", 8002, null);
+        NeptuneRpcInvokerSnapshot single = NeptuneRpcInvokerSnapshot.EMPTY.with("127.0.0.1:8001", first);
+        NeptuneRpcInvokerSnapshot snapshot = single.with("127.0.0.1:8002", second);
+        assertEquals(Collections.singletonList(second), snapshot.direct("127.0.0.1:8002").getInvokers());
+        assertSame(snapshot.direct("127.0.0.1:8002"), snapshot.direct("127.0.0.1:8002"));
+        assertSame(NeptuneRpcInvokerSnapshot.EMPTY, snapshot.direct("127.0.0.1:9000"));
+        assertSame(single, single.direct("127.0.0.1:8001"));
+    }
+
+    static NeptuneRpcInvoker invoker(String address, int port, String group){
+        return new NeptuneRpcInvoker().setAddress(address).setPort(port).setGroup(group);
+    }
+
+}
@@ -0,0 +1,187 @@
+package rpc;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nep.rpc.framework.core.client.NeptuneRpcInvoker;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcInvocation;
+import org.nep.rpc.framework.core.router.INeptuneRpcLoadBalance;
+import org.nep.rpc.framework.core.router.active.NeptuneLeastActiveLoadBalance;
+import org.nep.rpc.framework.core.router.latency.NeptunePeakEwmaLoadBalance;
+import org.nep.rpc.framework.core.router.round.NeptuneSmoothRoundRobinLoadBalance;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>负载均衡策略测试</h3>
+ */
+@Slf4j
+public class NeptuneRpcLoadBalanceTest {
+
+    private static final NeptuneRpcInvocation INVOCATION = new NeptuneRpcInvocation();
+
+    @Test
+    @DisplayName("最少活跃调用数: 总是选择活跃请求数量最少的服务端")
+    public void leastActiveTest() {
+        NeptuneRpcInvoker busy = invoker("busy", 100);
+        NeptuneRpcInvoker idle = invoker("idle", 1);
+        busy.incrementActive();
+        busy.incrementActive();
+        idle.incrementActive();
+        INeptuneRpcLoadBalance loadBalance = new NeptuneLeastActiveLoadBalance();
+        for (int index = 0; index < 1000; index++) {
+            assertSame(idle, loadBalance.select(Arrays.asList(busy, idle), INVOCATION));
+        }
+    }
+
+    @Test
+    @DisplayName("最少活跃调用数: 活跃请求数量相同时按照权重随机选择, 没有权重的服务端不会被选中")
+    public void leastActiveWeightTest() {
+        NeptuneRpcInvoker light = invoker("light", 0);
+        NeptuneRpcInvoker heavy = invoker("heavy", 3);
+        NeptuneRpcInvoker busy = invoker("busy", 100);
+        busy.incrementActive();
+        List<NeptuneRpcInvoker> invokers = Arrays.asList(light, heavy, busy);
+        INeptuneRpcLoadBalance loadBalance = new NeptuneLeastActiveLoadBalance();
+        for (int index = 0; index < 1000; index++) {
+            assertSame(heavy, loadBalance.select(invokers, INVOCATION));
+        }
+        // 注: 权重 1 : 3 的两个服务端, 一万次选择的比例和期望值的偏差远小于 5%
+        Map<String, Integer> counts = count(loadBalance, Arrays.asList(invoker("one", 1), invoker("three", 3)), 10000);
+        assertEquals(0.25, counts.get("one") / 10000.0, 0.05);
+    }
+
+    @Test
+    @DisplayName("峰值 EWMA: 两个服务端时总是选择延迟更低的服务端")
+    public void peakEwmaTest() {
+        NeptuneRpcInvoker slow = invoker("slow", 1);
+        NeptuneRpcInvoker fast = invoker("fast", 1);
+        long now = System.nanoTime();
+        slow.getLatency().observe(TimeUnit.MILLISECONDS.toNanos(100), now);
+        fast.getLatency().observe(TimeUnit.MILLISECONDS.toNanos(1), now);
+        INeptuneRpcLoadBalance loadBalance = new NeptunePeakEwmaLoadBalance();
+        for (int index = 0; index < 1000; index++) {
+            assertSame(fast, loadBalance.select(Arrays.asList(slow, fast), INVOCATION));
+        }
+        // 注: 延迟的峰值立刻生效, 快的服务端变慢之后马上就不再选择
+        fast.getLatency().observe(TimeUnit.MILLISECONDS.toNanos(500), System.nanoTime());
+        assertSame(slow, loadBalance.select(Arrays.asList(slow, fast), INVOCATION));
+    }
+
+    @Test
+    @DisplayName("峰值 EWMA: 还没有响应但是已经有请求在等待的服务端负载最高")
+    public void peakEwmaPenaltyTest() {
+        NeptuneRpcInvoker measured = invoker("measured", 1);
+        measured.getLatency().observe(TimeUnit.SECONDS.toNanos(1), System.nanoTime());
+        NeptuneRpcInvoker fresh = invoker("fresh", 1);
+        INeptuneRpcLoadBalance loadBalance = new NeptunePeakEwmaLoadBalance();
+        // 1. 刚上线并且没有请求的服务端负载为 0, 可以获得请求
+        assertSame(fresh, loadBalance.select(Arrays.asList(measured, fresh), INVOCATION));
+        // 2. 已经有请求在等待但是还没有响应, 那么即使另一个服务端很慢也不再选择
+        fresh.incrementActive();
+        for (int index = 0; index < 1000; index++) {
+            assertSame(measured, loadBalance.select(Arrays.asList(measured, fresh), INVOCATION));
+        }
+    }
+
+    @Test
+    @DisplayName("平滑加权轮询: 权重 5 : 1 : 1 时一整轮的选择顺序是 a a b a c a a")
+    public void smoothRoundRobinTest() {
+        List<NeptuneRpcInvoker> invokers = Arrays.asList(invoker("a", 5), invoker("b", 1), invoker("c", 1));
+        // 注: 选择顺序从随机位置开始, 所以连续两轮的结果都是这个顺序的某个旋转
+        assertCycle("aabacaa", sequence(new NeptuneSmoothRoundRobinLoadBalance(), invokers, 14));
+    }
+
+    @Test
+    @DisplayName("平滑加权轮询: 权重除以最大公约数之后计算, 一整轮的长度不变")
+    public void smoothRoundRobinGcdTest() throws Exception {
+        List<NeptuneRpcInvoker> invokers = Arrays.asList(invoker("a", 10), invoker("b", 2), invoker("c", 2));
+        NeptuneSmoothRoundRobinLoadBalance loadBalance = new NeptuneSmoothRoundRobinLoadBalance();
+        assertCycle("aabacaa", sequence(loadBalance, invokers, 14));
+        // 注: 不约分时选择的结果相同, 所以直接检查预先算出的选择顺序的长度
+        assertEquals(7, scheduleLength(loadBalance));
+    }
+
+    @Test
+    @DisplayName("平滑加权轮询: 总权重超过上限时按比例缩小, 有权重的服务端至少保留 1")
+    public void smoothRoundRobinLimitTest() {
+        List<NeptuneRpcInvoker> invokers = Arrays.asList(invoker("heavy", 70001), invoker("light", 1));
+        // 注: 缩小之后的权重是 65535 : 1, 一整轮的长度正好是 65536
+        Map<String, Integer> counts = count(new NeptuneSmoothRoundRobinLoadBalance(), invokers, 1 << 16);
+        assertEquals(65535, counts.get("heavy"));
+        assertEquals(1, counts.get("light"));
+    }
+
+    @Test
+    @DisplayName("平滑加权轮询: 不同的服务端集合各自记录选择的位置, 交替调用时不会互相打乱")
+    public void smoothRoundRobinSnapshotTest() {
+        NeptuneRpcInvoker a = invoker("a", 5);
+        NeptuneRpcInvoker b = invoker("b", 1);
+        NeptuneRpcInvoker c = invoker("c", 1);
+        List<NeptuneRpcInvoker> all = Arrays.asList(a, b, c);
+        List<NeptuneRpcInvoker> group = Arrays.asList(b, c);
+        INeptuneRpcLoadBalance loadBalance = new NeptuneSmoothRoundRobinLoadBalance();
+        StringBuilder allSequence = new StringBuilder();
+        StringBuilder groupSequence = new StringBuilder();
+        for (int index = 0; index < 14; index++) {
+            allSequence.append(loadBalance.select(all, INVOCATION).getAddress());
+            groupSequence.append(loadBalance.select(group, INVOCATION).getAddress());
+        }
+        assertCycle("aabacaa", allSequence.toString());
+        assertCycle("bc", groupSequence.toString());
+    }
+
+    /**
+     * <h3>读取平滑加权轮询唯一一个选择顺序的长度</h3>
+     */
+    static int scheduleLength(NeptuneSmoothRoundRobinLoadBalance loadBalance) throws Exception {
+        Field selectors = NeptuneSmoothRoundRobinLoadBalance.class.getDeclaredField("selectors");
+        selectors.setAccessible(true);
+        Collection<?> values = ((Map<?, ?>) selectors.get(loadBalance)).values();
+        assertEquals(1, values.size());
+        Object selector = values.iterator().next();
+        Field schedule = selector.getClass().getDeclaredField("schedule");
+        schedule.setAccessible(true);
+        return Array.getLength(schedule.get(selector));
+    }
+
+    static NeptuneRpcInvoker invoker(String address, int weight){
+        return new NeptuneRpcInvoker().setAddress(address).setPort(8000).setFixedWeight(weight);
+    }
+
+    static Map<String, Integer> count(INeptuneRpcLoadBalance loadBalance, List<NeptuneRpcInvoker> invokers, int times){
+        Map<String, Integer> counts = new HashMap<>();
+        for (int index = 0; index < times; index++) {
+            counts.merge(loadBalance.select(invokers, INVOCATION).getAddress(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    static String sequence(INeptuneRpcLoadBalance loadBalance, List<NeptuneRpcInvoker> invokers, int times){
+        StringBuilder sequence = new StringBuilder();
+        for (int index = 0; index < times; index++) {
+            sequence.append(loadBalance.select(invokers, INVOCATION).getAddress());
+        }
+        return sequence.toString();
+    }
+
+    /**
+     * <h3>选择的结果按照一整轮的长度重复, 并且每一轮都是期望顺序的某个旋转</h3>
+     */
+    static void assertCycle(String cycle, String sequence){
+        for (int index = cycle.length(); index < sequence.length(); index++) {
+            assertEquals(sequence.charAt(index - cycle.length()), sequence.charAt(index), sequence);
+        }
+        assertTrue((cycle + cycle).contains(sequence.substring(0, cycle.length())), sequence);
+    }
+
+}
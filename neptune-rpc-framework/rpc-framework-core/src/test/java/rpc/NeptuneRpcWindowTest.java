@@ -0,0 +1,68 @@
+package rpc;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.nep.rpc.framework.core.client.NeptuneRpcFuture;
+import org.nep.rpc.framework.core.common.cache.NeptuneRpcClientCache;
+import org.nep.rpc.framework.core.protocol.NeptuneRpcResponse;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>请求窗口测试: 请求结束时释放窗口容量</h3>
+ * <h3>注: 窗口是全局共享的, 所以只比较调用前后的变化量</h3>
+ */
+@Slf4j
+public class NeptuneRpcWindowTest {
+
+    @Test
+    @DisplayName("超时的请求以超时异常结束, 并且释放窗口容量")
+    public void expireTest() throws Exception {
+        int inflight = NeptuneRpcClientCache.Windows.inflight();
+        long expired = NeptuneRpcClientCache.Windows.expired();
+        NeptuneRpcFuture future = NeptuneRpcClientCache.Windows.put(NeptuneRpcClientCache.Windows.nextRequestId(), 1);
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+        assertEquals(inflight, NeptuneRpcClientCache.Windows.inflight());
+        assertEquals(expired + 1, NeptuneRpcClientCache.Windows.expired());
+        // 注: 超时之后才到达的响应直接丢弃
+        NeptuneRpcClientCache.Windows.complete(future.getRequestId(), new NeptuneRpcResponse());
+        assertEquals(inflight, NeptuneRpcClientCache.Windows.inflight());
+    }
+
+    @Test
+    @DisplayName("收到响应的请求正常结束, 释放窗口容量并且不会再超时")
+    public void completeTest() throws Exception {
+        int inflight = NeptuneRpcClientCache.Windows.inflight();
+        long expired = NeptuneRpcClientCache.Windows.expired();
+        long requestId = NeptuneRpcClientCache.Windows.nextRequestId();
+        NeptuneRpcFuture future = NeptuneRpcClientCache.Windows.put(requestId, 100);
+        assertEquals(inflight + 1, NeptuneRpcClientCache.Windows.inflight());
+        NeptuneRpcResponse response = new NeptuneRpcResponse();
+        NeptuneRpcClientCache.Windows.complete(requestId, response);
+        assertSame(response, future.get(5, TimeUnit.SECONDS));
+        assertEquals(inflight, NeptuneRpcClientCache.Windows.inflight());
+        // 注: 超时任务已经取消, 等待超过超时时间之后也不会计入超时的请求
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(expired, NeptuneRpcClientCache.Windows.expired());
+    }
+
+    @Test
+    @DisplayName("无法发送的请求以发送时的异常结束, 并且释放窗口容量")
+    public void failTest() {
+        int inflight = NeptuneRpcClientCache.Windows.inflight();
+        long requestId = NeptuneRpcClientCache.Windows.nextRequestId();
+        NeptuneRpcFuture future = NeptuneRpcClientCache.Windows.put(requestId, 1000);
+        IllegalStateException cause = new IllegalStateException("channel closed");
+        NeptuneRpcClientCache.Windows.fail(requestId, cause);
+        ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+        assertSame(cause, exception.getCause());
+        assertEquals(inflight, NeptuneRpcClientCache.Windows.inflight());
+    }
+
+}
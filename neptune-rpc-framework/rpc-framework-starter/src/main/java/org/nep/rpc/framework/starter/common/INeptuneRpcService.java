@@ -19,4 +19,14 @@ public @interface INeptuneRpcService {
 
     String serviceToken() default "";
 
+    /**
+     * <h3>服务独占的业务线程数量: 默认使用服务端共享的业务线程池</h3>
+     */
+    int threads() default 0;
+
+    /**
+     * <h3>服务独占的业务线程池队列长度</h3>
+     */
+    int queues() default 0;
+
 }
@@ -54,7 +54,9 @@ public class INeptuneServerAutoConfiguration implements InitializingBean, Applic
                                          .setService(bean)
                                          .setGroup(rpcService.group())
                                          .setToken(rpcService.serviceToken())
-                                         .setLimit(rpcService.limit()));
+                                         .setLimit(rpcService.limit())
+                                         .setThreads(rpcService.threads())
+                                         .setQueues(rpcService.queues()));
             log.info(">>>>>>>>>>>>>>> [Neptune RPC] 成功提供服务接口 {}  >>>>>>>>>>>>>>> ", beanName);
         }
         long end = System.currentTimeMillis();